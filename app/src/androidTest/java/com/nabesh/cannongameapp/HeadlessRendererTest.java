@@ -0,0 +1,60 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Picture;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+//runs the game on a device with its frames going to a HeadlessRenderer instead of the surface
+@RunWith(AndroidJUnit4.class)
+public class HeadlessRendererTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 180;
+    private static final int FRAMES = 30;
+    private static final long TIMEOUT_MS = 5000;
+
+    //launches the game drawing into the renderer and waits until it has drawn enough frames
+    private static void drawFrames(final HeadlessRenderer renderer) throws InterruptedException {
+        ActivityScenario<CannonGame> scenario = ActivityScenario.launch(CannonGame.class);
+        try {
+            scenario.onActivity(new ActivityScenario.ActivityAction<CannonGame>() {
+                @Override
+                public void perform(CannonGame activity) {
+                    CannonView view = activity.findViewById(R.id.cannonView);
+                    view.setPreferredRenderer(renderer); //kept should the surface turn up afterwards
+                    view.startHeadless(renderer);
+                }
+            });
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (renderer.getFrameCount() < FRAMES && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+        } finally {
+            scenario.close();
+        }
+    }
+
+    @Test
+    public void recordsTheGamesFrames() throws InterruptedException {
+        HeadlessRenderer renderer = HeadlessRenderer.recording(WIDTH, HEIGHT);
+        drawFrames(renderer);
+        assertTrue("only " + renderer.getFrameCount() + " frames", renderer.getFrameCount() >= FRAMES);
+        Picture frame = renderer.getLastFrame();
+        assertNotNull(frame);
+        assertEquals(WIDTH, frame.getWidth());
+        assertEquals(HEIGHT, frame.getHeight());
+    }
+
+    @Test
+    public void discardingRendererStillDrawsEveryFrame() throws InterruptedException {
+        HeadlessRenderer renderer = HeadlessRenderer.noOp();
+        drawFrames(renderer);
+        assertTrue("only " + renderer.getFrameCount() + " frames", renderer.getFrameCount() >= FRAMES);
+        assertNull(renderer.getLastFrame());
+        assertFalse(renderer.isPacedByDisplay());
+    }
+}
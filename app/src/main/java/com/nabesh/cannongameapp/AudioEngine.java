@@ -0,0 +1,115 @@
+package com.nabesh.cannongameapp;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import com.nabesh.cannongameapp.core.SoundEventQueue;
+
+//plays the game's sound effects without holding up the simulation. The game posts int sound
+//handles into a preallocated ring and a dedicated audio thread hands them to a SoundPool with
+//several voices, which mixes overlapping effects. A sound whose asset is missing or still
+//loading is silently skipped.
+class AudioEngine {
+    private static final String TAG = "AudioEngine";
+
+    //sound handles, indexes into the sample tables
+    static final int TARGET_HIT = 0;
+    static final int CANNON_FIRE = 1;
+    static final int BLOCKER_HIT = 2;
+    private static final String[] SAMPLE_NAMES = {"target_hit", "cannon_fire", "blocker_hit"};
+
+    private static final int VOICES = 8; //effects that can sound at once
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long IDLE_WAIT_NANOS = 1000000000L; //how long the thread sleeps between checks when idle
+    private static final long STOP_TIMEOUT_MS = 500; //how long release waits for the audio thread
+
+    private final SoundEventQueue events = new SoundEventQueue(QUEUE_CAPACITY);
+    private final SoundPool soundPool;
+    private final int[] sampleIds = new int[SAMPLE_NAMES.length]; //SoundPool ids, 0 if the asset is missing
+    private volatile int loadedMask; //bit i is set once sample i can be played
+    private final AudioThread audioThread = new AudioThread();
+
+    @SuppressWarnings("deprecation")
+    AudioEngine(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            soundPool = new SoundPool.Builder()
+                    .setMaxStreams(VOICES)
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_GAME)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .build();
+        } else {
+            soundPool = new SoundPool(VOICES, AudioManager.STREAM_MUSIC, 0);
+        }
+        soundPool.setOnLoadCompleteListener(new SoundPool.OnLoadCompleteListener() {
+            @Override
+            public void onLoadComplete(SoundPool pool, int sampleId, int status) {
+                for (int i = 0; i < sampleIds.length; ++i) {
+                    if (sampleIds[i] == sampleId && status == 0)
+                        loadedMask |= 1 << i;
+                }
+            }
+        });
+
+        //look the samples up by name so a build without them still runs, just silently
+        String packageName = context.getPackageName();
+        for (int i = 0; i < SAMPLE_NAMES.length; ++i) {
+            int resourceId = context.getResources().getIdentifier(SAMPLE_NAMES[i], "raw", packageName);
+            if (resourceId != 0)
+                sampleIds[i] = soundPool.load(context, resourceId, 1);
+            else
+                Log.w(TAG, "no sound asset " + SAMPLE_NAMES[i] + ", it will be silent");
+        }
+        audioThread.start();
+    }
+
+    //plays a sound soon, never blocks; called by the CannonThread only
+    void post(int sound) {
+        events.post(sound, 1f);
+    }
+
+    //stops the audio thread and frees the samples, waiting at most STOP_TIMEOUT_MS for the thread
+    void release() {
+        audioThread.interrupt();
+        try {
+            audioThread.join(STOP_TIMEOUT_MS);
+            if (audioThread.isAlive())
+                Log.w(TAG, "the audio thread did not stop within " + STOP_TIMEOUT_MS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); //leave it to whoever interrupted us
+        }
+        soundPool.release();
+    }
+
+    //sound events lost because the audio thread fell behind
+    long getDroppedEvents() {
+        return events.getDropped();
+    }
+
+    private class AudioThread extends Thread {
+        AudioThread() {
+            setName("AudioThread");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+            while (!isInterrupted()) {
+                if (!events.take(IDLE_WAIT_NANOS))
+                    continue;
+                int sound = events.getSound();
+                if (sound < 0 || sound >= sampleIds.length || (loadedMask & (1 << sound)) == 0)
+                    continue; //missing or not loaded yet, stay silent
+                float volume = events.getVolume();
+                soundPool.play(sampleIds[sound], volume, volume, 1, 0, 1f);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.nabesh.cannongameapp;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import com.nabesh.cannongameapp.core.AutoAimSolver;
+import com.nabesh.cannongameapp.core.CommandQueue;
+import com.nabesh.cannongameapp.core.GameWorld;
+import com.nabesh.cannongameapp.core.InputJournal;
+
+import java.util.concurrent.ForkJoinPool;
+
+//plays the game for the user: once no cannonball is flying it searches for a shot that hits
+//the target, aims, and fires it at the tick the search picked. There is one search per shot, and
+//a search that finds no hit is only tried again RETRY_TICKS later, so the pool idles most of the
+//time. Runs on the CannonThread, the search itself is spread over a ForkJoinPool, available from API 21.
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class AutoPlayer {
+    private static final int ANGLES = 96;
+    private static final int DELAYS = 24; //ticks the player may wait for a better shot
+    private static final long BUDGET_NANOS = 4000000L; //a quarter of a 60 Hz tick
+    private static final int RETRY_TICKS = DELAYS / 2; //a search looked DELAYS ticks ahead, so a miss holds a while
+
+    private final ForkJoinPool pool;
+    private final AutoAimSolver solver;
+
+    private boolean shotPending;
+    private long fireTick; //when to fire the pending shot
+    private long nextSearchTick; //no search before this tick
+    private float aimX;
+    private float aimY;
+
+    AutoPlayer() {
+        //leave cores for the simulation and render threads
+        pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+        solver = new AutoAimSolver(pool, ANGLES, DELAYS);
+    }
+
+    //called before each tick; its commands go through the journal so replays see them too
+    void beforeTick(GameWorld world, double tickSeconds, InputJournal journal) {
+        if (world.getTick() == 0) {
+            shotPending = false; //a new game
+            nextSearchTick = 0;
+        }
+        if (world.isGameOver())
+            return;
+
+        if (!shotPending) {
+            if (world.isCannonballOnScreen() || world.getTick() < nextSearchTick)
+                return;
+            AutoAimSolver.Shot shot = solver.solve(world, tickSeconds, BUDGET_NANOS);
+            if (!shot.hitsTarget) {
+                nextSearchTick = world.getTick() + RETRY_TICKS; //the blockers will have moved by then
+                return;
+            }
+            shotPending = true;
+            fireTick = world.getTick() + shot.delayTicks;
+            aimX = shot.aimX;
+            aimY = shot.aimY;
+            apply(world, journal, CommandQueue.AIM);
+        }
+
+        if (world.getTick() >= fireTick) {
+            apply(world, journal, CommandQueue.FIRE);
+            shotPending = false;
+        }
+    }
+
+    private void apply(GameWorld world, InputJournal journal, int type) {
+        if (journal != null)
+            journal.record(world.getTick(), type, aimX, aimY);
+        CommandQueue.apply(world, type, aimX, aimY);
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+}
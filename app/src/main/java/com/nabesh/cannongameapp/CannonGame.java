@@ -2,6 +2,7 @@ package com.nabesh.cannongameapp;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import android.content.Intent;
 import android.media.AudioManager;
 import android.net.rtp.AudioStream;
 import android.os.Bundle;
@@ -9,6 +10,14 @@ import android.view.GestureDetector;
 import android.view.MotionEvent;
 
 public class CannonGame extends AppCompatActivity {
+    //a two player game is started by launching with the other device's address, e.g.
+    //adb shell am start -n com.nabesh.cannongameapp/.CannonGame --es peer 192.168.1.20:47000 --ei player 1
+    //on one device and player 0 with this one's address on the other
+    public static final String EXTRA_PEER = "peer";
+    public static final String EXTRA_PLAYER = "player";
+    public static final String EXTRA_LOCAL_PORT = "localPort";
+    private static final int DEFAULT_PORT = 47000;
+
     private GestureDetector gestureDetector; //listens to double tap on the screen
     private CannonView cannonView; //custom view to display the game
 
@@ -16,10 +25,15 @@ public class CannonGame extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer.mark("activity created");
         setContentView(R.layout.activity_main); //inflates the layout
 
         //get the cannon view
         cannonView = findViewById(R.id.cannonView);
+        if (savedInstanceState != null)
+            cannonView.restoreState(savedInstanceState); //carry on the game from before a restart
+        else
+            startTwoPlayerGame(getIntent());
 
         //initialize the GestureDetector
         gestureDetector = new GestureDetector(this,gestureListener);
@@ -28,11 +42,42 @@ public class CannonGame extends AppCompatActivity {
         setVolumeControlStream(AudioManager.STREAM_MUSIC);
     }
 
+    //starts a two player game if the intent names the other player
+    private void startTwoPlayerGame(Intent intent) {
+        String peer = intent == null ? null : intent.getStringExtra(EXTRA_PEER);
+        if (peer == null)
+            return;
+        int colon = peer.lastIndexOf(':');
+        String host = colon < 0 ? peer : peer.substring(0, colon);
+        int port;
+        try {
+            port = colon < 0 ? DEFAULT_PORT : Integer.parseInt(peer.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return; //not an address, play alone
+        }
+        cannonView.startTwoPlayerGame(intent.getIntExtra(EXTRA_LOCAL_PORT, DEFAULT_PORT), host, port,
+                intent.getIntExtra(EXTRA_PLAYER, 0));
+    }
+
     //when the app is pushed to the background, pause it
     @Override
     public void onPause() {
         super.onPause(); //call the super method
-        cannonView.stopGame(); //terminates the game
+        cannonView.stopGame(); //pauses the game where it is
+    }
+
+    //carry on where the game was paused
+    @Override
+    public void onResume() {
+        super.onResume();
+        cannonView.resumeGame();
+    }
+
+    //keep the game in progress in case the activity is recreated
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        cannonView.saveState(outState);
     }
 
     //release resources
@@ -52,6 +97,10 @@ public class CannonGame extends AppCompatActivity {
         if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_MOVE){
             cannonView.alignCannon(event);
         }
+        //a second finger touching down switches auto-aim on or off
+        if (event.getActionMasked() == MotionEvent.ACTION_POINTER_DOWN && event.getPointerCount() == 2){
+            cannonView.toggleAutoAim();
+        }
         //call the GestureDetector's onTouchEvent method
         return gestureDetector.onTouchEvent(event);
     }
@@ -65,5 +114,11 @@ public class CannonGame extends AppCompatActivity {
             cannonView.fireCannonBall(e);
             return true;
         }
+
+        //called when the user long presses, switches rapid fire on or off
+        @Override
+        public void onLongPress(MotionEvent e) {
+            cannonView.toggleRapidFire();
+        }
     };
 }
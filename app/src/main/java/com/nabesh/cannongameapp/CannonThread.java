@@ -1,47 +1,93 @@
 package com.nabesh.cannongameapp;
 
-import android.graphics.Canvas;
-import android.view.SurfaceHolder;
+import com.nabesh.cannongameapp.core.FrameStats;
+import com.nabesh.cannongameapp.core.GameLoop;
+import com.nabesh.cannongameapp.core.QualityGovernor;
 
-//Thread subclass to control the game loop
-class CannonThread  extends Thread{
+//the simulation loop, run on the long-lived cannon thread by a GameLoop; it never touches the surface
+class CannonThread implements GameLoop.Body {
 
-    private SurfaceHolder surfaceHolder;
-    CannonView cannonView;
-    private boolean threadIsRunning = true;
+    //supported simulation rates in ticks per second, 30 only when the device can't keep up
+    public static final int TICK_RATE_30 = 30;
+    public static final int TICK_RATE_60 = 60;
+    public static final int TICK_RATE_90 = 90;
+    public static final int TICK_RATE_120 = 120;
 
-    public CannonThread(SurfaceHolder holder) {
-        surfaceHolder = holder;
-        setName("CannonThread");
+    //most simulation ticks run for a single frame before time is dropped
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    //the render thread's share of a core is its draw time over one frame of the display
+    private static final float DISPLAY_FRAME_NANOS = NANOS_PER_SECOND / 60f;
+
+    private final CannonView cannonView;
+    private final FrameStats frameStats;
+    private final QualityGovernor qualityGovernor;
+
+    private long tickNanos; //length of one simulation tick
+    private double tickMS; //the same tick handed to updatePositions
+
+    private long previousFrameTime;
+    private long accumulator; //simulation time owed to the game, in nanoseconds
+
+    public CannonThread(CannonView view) {
+        cannonView = view;
+        frameStats = view.getFrameStats();
+        qualityGovernor = view.getQualityGovernor();
+        setTickRate(TICK_RATE_60);
+    }
+
+    //sets the number of simulation ticks per second, only while the loop is paused
+    public void setTickRate(int ticksPerSecond){
+        if (ticksPerSecond <= 0)
+            throw new IllegalArgumentException("tick rate must be positive: " + ticksPerSecond);
+        tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+        tickMS = 1000.0 / ticksPerSecond;
     }
 
-    public void setRunning(boolean running){
-        threadIsRunning = running;
+    //time spent paused is not owed to the game
+    @Override
+    public void onResume() {
+        previousFrameTime = System.nanoTime();
+        accumulator = 0;
     }
 
     @Override
-    public void run() {
-        Canvas canvas = null;
-        long previousFrameTime = System.currentTimeMillis();
-
-        while (threadIsRunning){
-            try {
-                canvas = surfaceHolder.lockCanvas();
-
-                //lock the surfaceHolder for drawing
-                synchronized (surfaceHolder){
-                    long currentTime = System.currentTimeMillis();
-                    double elapsedTimeMS = currentTime - previousFrameTime;
-                    double totalElapsedTime = elapsedTimeMS / 1000.0;
-                    cannonView.updatePositions();
-                    cannonView.drawGameElements(canvas);
-                    previousFrameTime = currentTime;
-                }
-            }finally {
-                if (canvas != null){
-                    surfaceHolder.unlockCanvasAndPost(canvas);
-                }
-            }
+    public long runOnce() {
+        long currentTime = System.nanoTime();
+        long elapsedTime = currentTime - previousFrameTime;
+        previousFrameTime = currentTime;
+
+        //drop time we cannot catch up on instead of spiralling
+        if (elapsedTime > tickNanos * MAX_CATCH_UP_TICKS)
+            elapsedTime = tickNanos * MAX_CATCH_UP_TICKS;
+        accumulator += elapsedTime;
+
+        //advance the game in constant steps
+        int steps = 0;
+        long updateNanos = 0;
+        while (accumulator >= tickNanos){
+            long updateStart = System.nanoTime();
+            cannonView.updatePositions(tickMS);
+            long tickUpdateNanos = System.nanoTime() - updateStart;
+            frameStats.recordUpdate(tickUpdateNanos);
+            updateNanos += tickUpdateNanos;
+            accumulator -= tickNanos;
+            ++steps;
         }
+        boolean stepped = steps > 0;
+
+        //the share of a core the simulation and the drawing took, the governor steps quality down when it nears 1
+        if (stepped)
+            qualityGovernor.sample(currentTime, (float) updateNanos / (steps * tickNanos) +
+                    cannonView.getAverageDrawNanos() / DISPLAY_FRAME_NANOS);
+
+        //hand the new state to the render thread, stamped with when its tick was due
+        if (stepped)
+            cannonView.publishSnapshot(currentTime - accumulator, tickNanos);
+
+        //wait until the next tick is due
+        return tickNanos - accumulator - (System.nanoTime() - currentTime);
     }
 }
@@ -5,85 +5,174 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Point;
-import android.media.AudioManager;
-import android.media.SoundPool;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Debug;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
-import java.util.HashMap;
-import java.util.Map;
-
-
-public class CannonView extends SurfaceView implements SurfaceHolder.Callback {
-    private CannonThread cannonThread;
+import com.nabesh.cannongameapp.core.CommandQueue;
+import com.nabesh.cannongameapp.core.FrameStats;
+import com.nabesh.cannongameapp.core.GameLoop;
+import com.nabesh.cannongameapp.core.GameWorld;
+import com.nabesh.cannongameapp.core.InputJournal;
+import com.nabesh.cannongameapp.core.LevelPack;
+import com.nabesh.cannongameapp.core.Line;
+import com.nabesh.cannongameapp.core.LockstepPeer;
+import com.nabesh.cannongameapp.core.LockstepSession;
+import com.nabesh.cannongameapp.core.ParticleSystem;
+import com.nabesh.cannongameapp.core.QualityGovernor;
+import com.nabesh.cannongameapp.core.TripleBuffer;
+import com.nabesh.cannongameapp.core.WorldSnapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+public class CannonView extends SurfaceView implements SurfaceHolder.Callback, GameWorld.Listener {
+    private static final String TAG = "CannonView";
+
+    //how often the statistics overlay is refreshed
+    private static final long OVERLAY_REFRESH_NANOS = 500000000L;
+
+    //how long the UI thread waits for the loops to pause or end
+    private static final long LOOP_TIMEOUT_MS = 500;
+
+    //the simulation and drawing, each run on one thread for the life of the view
+    private final CannonThread cannonThread;
+    private final RenderThread renderThread;
+    private final GameLoop simulationLoop;
+    private final GameLoop renderLoop;
+    private boolean surfaceReady;
+    private Renderer renderer; //how frames reach the screen, chosen when the surface is created
+    private Renderer preferredRenderer; //set to override the choice for this device
     private Activity activity; //to display Game over dialog in GUI thread
+    private volatile boolean gameEnded; //set by the CannonThread when the game ends, cleared by newGame()
     private boolean dialogIsDisplayed = false;
 
-    //constants for the game play
-    public static final int TARGET_PIECES = 7;
-    public static final int MISS_PENALTY = 2;
-    public static final int HIT_REWARD = 3;
-
-    //variables for the game loop and tracking statistics
-    private boolean gameOver;
-    private double timeLeft;
-    private int shotsFired;
-    private double totalTimeElapsed;
-
-    //variables for the blocker and target
-    private Line blocker;
-    private int blockerDistance;
-    private int blockerBeginning;
-    private int blockerEnd;
-    private int initialBlockerVelocity;
-    private float blockerVelocity;
-
-    private Line target;
-    private int targetDistance;
-    private int targetBeginning;
-    private double pieceLength;
-    private int targetEnd;
-    private int initialTargetVelocity;
-    private float targetVelocity;
-
-    private int lineWidth;
-    private boolean[] hitStates;
-    private int targetPiecesHit;
-
-    //variables for the cannon and cannonball
-    private Point cannonball;
-    private int cannonballVelocityX;
-    private int cannonballVelocityY;
-    private boolean cannonballOnScreen;
-    private int cannonballRadius;
-    private int cannonballSpeed;
-    private int cannonBaseRadius;
-    private int cannonLength;
-    private Point barrelEnd;
-    private int screenWidth;
-    private int screenHeight;
-
-    //constants and variables for managing sounds
-    private static final int TARGET_SOUND_ID = 0;
-    private static final int CANNON_SOUND_ID = 1;
-    private static final int BLOCKER_SOUND_ID = 2;
-    private SoundPool soundPool;    //plays sound effects
-    private Map<Integer, Integer> soundMap; //maps IDs toSoundPool
+    //the simulation this view renders, only touched by the CannonThread while it runs
+    private GameWorld world;
+
+    //player input from the UI thread and snapshots for the render thread
+    private CommandQueue commandQueue;
+    private TripleBuffer<WorldSnapshot> snapshots;
+
+    //the levels, opened the first time the view is laid out; winning moves on to the next one
+    private static final String LEVEL_ASSET = "levels.lvl";
+    private volatile LevelPack levelPack; //null until the startup executor has opened it
+    private int levelIndex;
+
+    //every command of the current game, saved when it ends so the game can be replayed
+    private final InputJournal inputJournal = new InputJournal();
+    private static final String JOURNAL_FILE = "last_game.journal";
+
+    //the game in progress kept across the activity being recreated, applied once the view has a size
+    private static final String STATE_WORLD = "world";
+    private static final String STATE_LEVEL = "levelIndex";
+    private byte[] pendingState;
+
+    //a game against a player on another device, null when playing alone. Both devices play the
+    //default level on a world of the same fixed size, fitted into the screen, at the same tick rate.
+    private static final float TWO_PLAYER_HEIGHT = 16 / 9f;
+    private static final int TWO_PLAYER_TICK_RATE = CannonThread.TICK_RATE_60;
+    private static final int TWO_PLAYER_INPUT_DELAY = 3; //ticks, about the round trip on a LAN
+    private static final int TWO_PLAYER_MAX_PREDICTION = 8;
+    private volatile LockstepSession twoPlayerSession;
+    private LockstepPeer twoPlayerPeer;
+
+    //plays for the user while auto-aim is on, created the first time it is switched on
+    private volatile AutoPlayer autoPlayer;
+    private volatile boolean autoAimEnabled;
+
+    //plays sound effects on its own thread, null until the startup executor has loaded them
+    private volatile AudioEngine audioEngine;
+
+    //loads sounds and levels and warms the game code up off the UI thread while the first frame is drawn
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Startup");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    //writes finished games' journals to the app's files so the CannonThread never waits on storage
+    private final ExecutorService journalWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "JournalWriter");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
 
     //Paint variables used when drawing each item on the screen
     private Paint textPaint;
     private Paint cannonballPaint;
     private Paint cannonPaint;
     private Paint blockerPaint;
-    private Paint targetPaint;
+    private Paint[] targetPiecePaints; //one paint per target piece, built once
+    private Paint[] particlePaints; //one paint per kind of particle
     private Paint backgroundPaint;
 
+    //sparks thrown off by hits and shots, drawn as streaks with one drawLines call per kind
+    private static final int PARTICLE_CAPACITY = 4096;
+    private volatile int particleBudget = PARTICLE_CAPACITY; //most particles drawn in a frame
+
+    //the world is 1 wide and as high as the screen's aspect ratio, scaled onto the surface when drawn;
+    //the surface is the size of the view unless the quality governor made it smaller
+    private float worldScale = 1; //surface pixels per world unit
+    private float touchScale = 1; //view pixels per world unit
+    private int surfaceWidth;
+    private int surfaceHeight;
+
+    //HUD text, reformatted only when the displayed value changes
+    private TimerText timerText;
+    private float hudX;
+    private float hudY;
+    private float hudBottom; //lowest pixel the HUD text can reach
+
+    //the background and cannon base, drawn once per size, and the area each frame redraws over it
+    private Bitmap staticLayer;
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
+
+    //allocation counting for drawGameElements, for verifying the render path
+    private volatile boolean countAllocations;
+    private int drawAllocations;
+
+    //timings recorded by both threads, and the optional overlay showing them
+    private final FrameStats frameStats = new FrameStats(60);
+    private volatile boolean statsOverlayEnabled;
+    private Paint overlayPaint;
+    private String[] overlayLines = new String[0];
+    private long overlayUpdatedNanos;
+
+    //lowers the quality when the device can't keep up, sampled by the CannonThread. Drawing changes
+    //reach the render thread through renderQuality, the surface size is changed on the UI thread and
+    //the tick rate and cannonball limit wait for the next game, which the journal must record whole.
+    private final QualityGovernor qualityGovernor = new QualityGovernor();
+    private volatile QualityGovernor.Level renderQuality = qualityGovernor.getLevel();
+    private QualityGovernor.Level appliedRenderQuality; //the render thread's, null to apply it again
+
 
     public CannonView(Context context, AttributeSet attrs) {
         super(context, attrs); //calls super's constructor
@@ -92,183 +181,362 @@ public class CannonView extends SurfaceView implements SurfaceHolder.Callback {
         //register SurfaceHolder.Callback listener
         getHolder().addCallback(this);
 
-        //initialize other classes
-        blocker = new Line(); //create the blocker as a line
-        target = new Line(); //create the target as a line
-        cannonball = new Point(); //create cannon ball as a point
-
-        //initialize the hitStates as a boolean array
-        hitStates = new boolean[TARGET_PIECES];
-
-        //initialize the SoundPool to play the three sound effects
-        soundPool = new SoundPool(1, AudioManager.STREAM_MUSIC, 0);
-
-        //create Map of sounds and preload sounds
-        soundMap = new HashMap<Integer, Integer>(); //creates a new HashMap
-//        soundMap.put(TARGET_SOUND_ID, soundPool.load(context, R.raw.target_hit, 1));
-//        soundMap.put(CANNON_SOUND_ID, soundPool.load(context, R.raw.cannon_fire, 1));
-//        soundMap.put(BLOCKER_SOUND_ID, soundPool.load(context, R.raw.blocker_hit, 1));
+        //create the game world and listen for its events
+        world = new GameWorld();
+        world.setListener(this);
+        world.setParticles(new ParticleSystem(PARTICLE_CAPACITY));
+        commandQueue = new CommandQueue(256);
+        snapshots = new TripleBuffer<WorldSnapshot>(
+                new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY, PARTICLE_CAPACITY),
+                new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY, PARTICLE_CAPACITY),
+                new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY, PARTICLE_CAPACITY));
 
         //Constructs for the paint
         textPaint = new Paint();
         cannonballPaint = new Paint();
         cannonPaint = new Paint();
         blockerPaint = new Paint();
-        targetPaint = new Paint();
         backgroundPaint = new Paint();
+        overlayPaint = new Paint();
+        overlayPaint.setColor(Color.DKGRAY);
+        overlayPaint.setAntiAlias(true);
+
+        //alternate colours on the target pieces
+        targetPiecePaints = new Paint[Line.MAX_PIECES];
+        for (int i = 0; i < Line.MAX_PIECES; ++i) {
+            targetPiecePaints[i] = new Paint();
+            targetPiecePaints[i].setColor(i % 2 == 0 ? Color.BLUE : Color.YELLOW);
+        }
+
+        particlePaints = new Paint[ParticleSystem.KINDS];
+        for (int i = 0; i < ParticleSystem.KINDS; ++i)
+            particlePaints[i] = new Paint();
+        particlePaints[ParticleSystem.TARGET_SPARK].setColor(Color.RED);
+        particlePaints[ParticleSystem.BLOCKER_SPARK].setColor(Color.GRAY);
+        particlePaints[ParticleSystem.MUZZLE_FLASH].setColor(Color.YELLOW);
+
+        timerText = new TimerText(getResources().getString(R.string.time_remaining_format));
+
+        qualityGovernor.setListener(new QualityGovernor.Listener() {
+            @Override
+            public void onQualityChanged(final QualityGovernor.Level level, QualityGovernor.Decision decision) {
+                Log.i(TAG, "quality " + decision + ": " + level);
+                renderQuality = level;
+                setParticleBudget(level.getParticleBudget());
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        requestSurfaceSize(level.getResolutionScale());
+                    }
+                });
+            }
+        });
+
+        //the loops' threads start the first time the surface is ready
+        cannonThread = new CannonThread(this);
+        renderThread = new RenderThread(this);
+        simulationLoop = new GameLoop("CannonThread", cannonThread);
+        renderLoop = new GameLoop("RenderThread", renderThread);
+
+        startInBackground(context);
+        StartupTracer.mark("view created");
+    }
+
+    //the startup work the first frame doesn't need: it is drawn from the default level with no
+    //sound, which is the same layout as the pack's first level
+    private void startInBackground(final Context context) {
+        startupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //load the three sound effects, any that are missing stay silent
+                audioEngine = new AudioEngine(context);
+                StartupTracer.mark("sounds loading");
+                levelPack = LevelAssets.open(context, LEVEL_ASSET);
+                StartupTracer.mark("levels opened");
+                Warmup.run();
+                StartupTracer.mark("warm-up done");
+            }
+        });
+        startupExecutor.shutdown(); //the thread ends once the work is done
     }
 
     //called when the size of this view changes --including when this view is first added to the view hierarchy
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        screenWidth = w;
-        screenHeight = h;
-
-        cannonBaseRadius = h / 18;
-        cannonLength = w / 8;
-
-        cannonballRadius = w / 36;
-        cannonballSpeed = w * 3 / 2;
-
-        lineWidth = w / 24;
-
-        blockerDistance = w *5 / 8;
-        blockerBeginning = h / 8;
-        blockerEnd = h * 3 / 8;
-        initialBlockerVelocity = h / 2;
-        blocker.start = new Point(blockerDistance, blockerBeginning);
-        blocker.end = new Point(blockerDistance, blockerEnd);
+        //the world is only resized while the threads are stopped
+        stopThreads();
+        if (twoPlayerSession == null)
+            world.setSize(1, (float) h / w);
+        float scale = qualityGovernor.getLevel().getResolutionScale();
+        requestSurfaceSize(scale);
+        layoutSurface(scaledSize(w, scale), scaledSize(h, scale));
+
+        if (twoPlayerSession != null) {
+            //the two player game carries on in the same world
+            if (surfaceReady)
+                startThreads();
+            return;
+        }
+        if (pendingState != null)
+            restoreGame();
+        else
+            newGame();
 
-        targetDistance = w * 7 / 8;
-        targetBeginning = h / 8;
-        targetEnd = h * 7 / 8;
-        pieceLength = (targetEnd - targetBeginning) / TARGET_PIECES;
-        initialTargetVelocity = -h / 4;
-        target.start = new Point(targetDistance, targetBeginning);
-        target.end = new Point(targetDistance, targetEnd);
+    }
 
-        barrelEnd = new Point(cannonLength, h / 2);
+    //sizes everything drawn for a surface of the given size in pixels, only while the threads are stopped
+    private void layoutSurface(int w, int h) {
+        surfaceWidth = w;
+        surfaceHeight = h;
+        //the world is as wide as the screen unless it is a two player world taller than the screen
+        worldScale = Math.min(w, h / world.getHeight());
+        touchScale = Math.min(getWidth(), getHeight() / world.getHeight());
+        float pixelScale = w / (float) getWidth(); //surface pixels per view pixel
 
+        float lineWidth = world.getLineWidth();
         textPaint.setTextSize(w / 20);
-        textPaint.setAntiAlias(true);
         cannonballPaint.setStrokeWidth(lineWidth * 1.5f);
         blockerPaint.setStrokeWidth(lineWidth);
-        targetPaint.setStrokeWidth(lineWidth);
+        for (Paint piecePaint : targetPiecePaints)
+            piecePaint.setStrokeWidth(lineWidth);
+        for (Paint particlePaint : particlePaints)
+            particlePaint.setStrokeWidth(lineWidth / 4);
         backgroundPaint.setColor(Color.WHITE);
-        
-        newGame();
+        hudX = 30 * pixelScale;
+        hudY = 50 * pixelScale;
+        hudBottom = hudY + textPaint.descent() + 1;
+        overlayPaint.setTextSize(Math.max(w / 60, 10));
+
+        //the render thread draws a new static layer before its first frame
+        if (staticLayer != null) {
+            staticLayer.recycle();
+            staticLayer = null;
+        }
+        dirtyRegion.reset(w, h, worldScale);
+        appliedRenderQuality = null; //the render thread sets the paints up again
+    }
 
+    //asks for a surface smaller than the view by the given scale, or the size of the view for 1;
+    //surfaceChanged lays the game out again once it has the new size. Called on the UI thread.
+    private void requestSurfaceSize(float scale) {
+        int w = getWidth();
+        int h = getHeight();
+        if (w == 0 || h == 0)
+            return;
+        if (scale >= 1)
+            getHolder().setSizeFromLayout();
+        else
+            getHolder().setFixedSize(scaledSize(w, scale), scaledSize(h, scale));
+    }
+
+    private static int scaledSize(int size, float scale) {
+        return Math.max(1, Math.round(size * scale));
     }
 
-    //reset all the screen elements and start a new game
+    //reset all the screen elements and start a new game, called on the UI thread
     public void newGame() {
-        for (int i = 0; i < TARGET_PIECES; ++i) {
-            hitStates[i] = false;
+        stopThreads();
+        gameEnded = false;
+        if (twoPlayerSession != null)
+            endTwoPlayerGame();
+        applyGameQuality();
+        applyLevel();
+        world.newGame();
+        publishSnapshot(System.nanoTime(), 0);
+
+        if (surfaceReady)
+            startThreads();
+    }
+
+    //carries on the game saved by saveState instead of starting a new one, called on the UI thread
+    private void restoreGame() {
+        byte[] state = pendingState;
+        pendingState = null;
+        try {
+            world.readState(ByteBuffer.wrap(state));
+        } catch (IOException e) {
+            Log.w(TAG, "could not restore the saved game, starting a new one", e);
+            world.setSize(world.getWidth(), world.getHeight());
+            newGame();
+            return;
+        }
+        //the dialog that ended a finished game went with the old activity
+        if (world.isGameOver()) {
+            newGame();
+            return;
         }
+        inputJournal.discard(); //the game did not start here so it cannot be replayed
+        applyGameQuality();
+        gameEnded = false;
+
+        publishSnapshot(System.nanoTime(), 0);
+        if (surfaceReady)
+            startThreads();
+    }
 
-        targetPiecesHit = 0;
-        blockerVelocity = initialBlockerVelocity;
-        targetVelocity = initialTargetVelocity;
-        timeLeft = 10;
-        cannonballOnScreen = false;
-        shotsFired = 0;
-        totalTimeElapsed = 0.0;
-        blocker.start.set(blockerDistance, blockerBeginning);
-        blocker.end.set(blockerDistance, blockerEnd);
-        target.start.set(targetDistance, targetBeginning);
-        target.end.set(targetDistance, targetEnd);
-
-        if (gameOver){
-            gameOver = false;
-            cannonThread = new CannonThread(getHolder());
-            cannonThread.start();
+    //writes the game in progress and the level into the bundle, called on the UI thread once the game is paused
+    public void saveState(Bundle outState) {
+        outState.putInt(STATE_LEVEL, levelIndex);
+        if (twoPlayerSession != null)
+            return; //can't carry on without the other player
+        if (pendingState != null) {
+            outState.putByteArray(STATE_WORLD, pendingState); //never laid out since it was restored
+            return;
         }
+        if (world.getWidth() == 0)
+            return;
+        stopThreads(); //the world must not move while it is written
+        ByteBuffer state = ByteBuffer.allocate(GameWorld.maxStateBytes(GameWorld.DEFAULT_CANNONBALL_CAPACITY));
+        world.writeState(state);
+        outState.putByteArray(STATE_WORLD, Arrays.copyOf(state.array(), state.position()));
     }
 
-    //called repeatedly by the CannonThread to update game elements
-    private void updatePositions(double elapsedTimeMS){
-        double interval = elapsedTimeMS / 100; //converts to seconds
-        if (cannonballOnScreen){ //if there is currently a shot fired
-            //update cannon ball position
-            cannonball.x += interval * cannonballVelocityX;
-            cannonball.y += interval * cannonballVelocityY;
-
-            //check for collision with the blocker
-            if (cannonball.x + cannonballRadius > blockerDistance &&
-                    cannonball.x - cannonballRadius < blockerDistance &&
-                    cannonball.y + cannonballRadius > blocker.start.y &&
-                    cannonball.y - cannonballRadius < blocker.end.y){
-                cannonballVelocityX *= -1; //reverse cannonball's direction
-                timeLeft -= MISS_PENALTY; //penalize the user
-
-                //play blocker sound
-                soundPool.play(soundMap.get(BLOCKER_SOUND_ID), 1, 1,1,0, 1f);
-            }
+    //picks up what saveState wrote, the game carries on once the view is laid out
+    public void restoreState(Bundle savedState) {
+        levelIndex = savedState.getInt(STATE_LEVEL);
+        pendingState = savedState.getByteArray(STATE_WORLD);
+    }
 
-            //check for collision with left and right walls
-            else if (cannonball.x + cannonballRadius > screenWidth || cannonball.x - cannonballRadius < 0){
-                cannonballOnScreen = false; //remove cannonball from the screen
-            }
+    //plays the given level from the pack from the next game on
+    public void setLevel(int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("level index must not be negative: " + index);
+        levelIndex = index;
+        newGame();
+    }
 
-            //check for collision with the top and bottom walls
-            else if (cannonball.y + cannonballRadius > screenHeight || cannonball.y - cannonballRadius < 0){
-                cannonballOnScreen = false;
-            }
+    //the parts of the quality that change how the game plays, only between games and with the threads stopped
+    private void applyGameQuality() {
+        QualityGovernor.Level quality = qualityGovernor.getLevel();
+        cannonThread.setTickRate(quality.getTickRate());
+        world.setCannonballLimit(quality.getCannonballLimit());
+    }
 
-            //check for cannonball collision with the target
-            else if (cannonball.x + cannonballRadius > targetDistance &&
-                    cannonball.x - cannonballRadius < targetDistance &&
-                    cannonball.y + cannonballRadius > target.start.y &&
-                    cannonball.x - cannonballRadius < target.end.y){
-                //determine target section number(0 is the top)
-                int section = (int) ((cannonball.y - target.start.y) / pieceLength);
-
-                //check if the piece hasn't been hit yet
-                if ((section >= 0 && section < TARGET_PIECES) && !hitStates[section]){
-                    hitStates[section] = true; //section was hit
-                    cannonballOnScreen = false; //remove cannonBall
-                    timeLeft += HIT_REWARD;
-
-                    //play target hit sound
-                    soundPool.play(soundMap.get(TARGET_SOUND_ID), 1, 1, 1, 0, 1f);
-
-                    //if all pieces have been hit
-                    if (++targetPiecesHit == TARGET_PIECES)
-                        cannonThread.setRunning(false);
-                        showGameOverDialog(R.string.win); //shows winning dialog
-                        gameOver = true;
-                }
+    //puts the current level in the world, keeping the default one if there is no pack; the
+    //level keeps its layout for each screen size so this is cheap. Threads must be stopped.
+    private void applyLevel() {
+        LevelPack pack = levelPack;
+        if (pack == null || pack.getLevelCount() == 0)
+            return;
+        try {
+            pack.getLevel(levelIndex % pack.getLevelCount()).applyTo(world);
+        } catch (IOException e) {
+            Log.w(TAG, "could not load level " + levelIndex + ", using the default level", e);
+            world.setSize(world.getWidth(), world.getHeight());
+        }
+    }
+
+    //called repeatedly by the CannonThread with a fixed step to update game elements
+    void updatePositions(double elapsedTimeMS){
+        LockstepSession session = twoPlayerSession;
+        if (session != null) {
+            //the session steps the world once both players' commands allow it, and reports game over
+            //itself once the other player has everything it needs
+            commandQueue.drainTo(session);
+            session.tick();
+            if (session.isPeerLost() && !gameEnded) {
+                Log.w(TAG, "the other player went silent\n" + session.dump());
+                endGame(R.string.peer_lost); //resetting goes back to playing alone
             }
+            return;
         }
+        double interval = elapsedTimeMS / 1000; //converts to seconds
+        if (world.getTick() == 0)
+            inputJournal.begin(world, interval); //first tick of a new game
+        InputJournal journal = inputJournal.isRecording() ? inputJournal : null;
+        commandQueue.drainTo(world, journal); //input takes effect between ticks
+        AutoPlayer player = autoPlayer;
+        if (player != null && autoAimEnabled)
+            player.beforeTick(world, interval, journal);
+        world.step(interval);
+    }
 
-        //update blocker position
-        double blockerUpdate = interval * blockerVelocity;
-        blocker.start.y += blockerUpdate;
-        blocker.end.y += blockerUpdate;
+    //copies the world for the render thread, called by the thread that owns the world
+    void publishSnapshot(long timeNanos, long tickNanos){
+        WorldSnapshot snapshot = snapshots.getBack();
+        snapshot.copyFrom(world);
+        snapshot.timeNanos = timeNanos;
+        snapshot.tickNanos = tickNanos;
+        snapshot.last = gameEnded;
+        snapshots.publish();
+    }
 
-        //update the target's position
-        double targetUpdate  = interval * targetVelocity;
-        target.start.y  += targetUpdate;
-        target.end.y += targetUpdate;
+    //the newest snapshot, called by the RenderThread
+    WorldSnapshot acquireSnapshot(){
+        return snapshots.acquire();
+    }
 
-        //if the blocker hit the top or bottom, reverse direction
-        if (blocker.start.y < 0 || blocker.end.y > screenHeight){
-            blockerVelocity *= -1;
-        }
+    @Override
+    public void onCannonFired() {
+        //play cannon fired sound
+        AudioEngine audio = audioEngine;
+        if (audio != null)
+            audio.post(AudioEngine.CANNON_FIRE);
+    }
 
-        //if the target hit top or bottom, reverse direction
-        if (target.start.y < 0 || target.end.y > screenHeight){
-            targetVelocity *= -1;
-        }
-        timeLeft -= interval;
-
-        //if the timer gets to zero
-        if (timeLeft <= 0){
-            timeLeft = 0.0;
-            gameOver = true;
-            cannonThread.setRunning(false);
-            showGameOverDialog(R.string.lose);
+    @Override
+    public void onBlockerHit() {
+        //play blocker sound
+        AudioEngine audio = audioEngine;
+        if (audio != null)
+            audio.post(AudioEngine.BLOCKER_HIT);
+    }
+
+    @Override
+    public void onTargetHit(int section) {
+        //play target hit sound
+        AudioEngine audio = audioEngine;
+        if (audio != null)
+            audio.post(AudioEngine.TARGET_HIT);
+    }
+
+    @Override
+    public void onGameOver(boolean won) {
+        if (won && twoPlayerSession == null)
+            ++levelIndex; //the next newGame() plays the next level
+        endGame(won ? R.string.win : R.string.lose);
+        saveInputJournal();
+    }
+
+    //stops the simulation for good and shows the dialog, only newGame() starts it again. The pass
+    //in progress still publishes the final snapshot, and the render loop pauses once it has drawn it.
+    //Called by the CannonThread.
+    private void endGame(int messageId) {
+        gameEnded = true;
+        simulationLoop.pause();
+        showGameOverDialog(messageId);
+    }
+
+    //the render thread has put the last snapshot of an ended game on screen
+    void onLastFrameDrawn() {
+        renderLoop.pause();
+    }
+
+    //hands a copy of the journal of the game that just ended to the journal writer, called by the CannonThread
+    private void saveInputJournal() {
+        if (!inputJournal.isRecording())
+            return;
+        final InputJournal journal = inputJournal.copy(); //the next game reuses inputJournal
+        final File file = new File(getContext().getFilesDir(), JOURNAL_FILE);
+        try {
+            journalWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        OutputStream out = new FileOutputStream(file);
+                        try {
+                            journal.writeTo(out);
+                        } finally {
+                            out.close();
+                        }
+                    } catch (IOException e) {
+                        Log.w(TAG, "could not save the input journal", e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //the view is being released, the journal goes with it
         }
     }
 
@@ -279,7 +547,8 @@ public class CannonView extends SurfaceView implements SurfaceHolder.Callback {
         dialogBuilder.setCancelable(false);
 
         //display number of shots fired and total time elapsed
-        dialogBuilder.setMessage(getResources().getString(R.string.results_format, shotsFired, totalTimeElapsed));
+        dialogBuilder.setMessage(getResources().getString(R.string.results_format,
+                world.getShotsFired(), world.getTotalTimeElapsed()));
         dialogBuilder.setPositiveButton(R.string.reset_game, new DialogInterface.OnClickListener() {
 
             //called when the reset button is clicked
@@ -299,131 +568,457 @@ public class CannonView extends SurfaceView implements SurfaceHolder.Callback {
         });
     }
 
-    //alligns the cannon in response to user touches
-    public double alignCannon(MotionEvent event) {
-        //get the location of the touch  in this view
-        Point touchPoint = new Point((int)event.getX(), (int)event.getY());
-        //compute the touch's distance from the centre of the screen
-        double centerMinusY = (screenHeight / 2 - touchPoint.y);
-        double angle = 0;
+    //alligns the cannon in response to user touches; a move event may batch several older
+    //samples but only its newest position matters, and only the newest event before each tick
+    public void alignCannon(MotionEvent event) {
+        commandQueue.offerAim(event.getX() / touchScale, event.getY() / touchScale);
+    }
 
-        //calculate the angle the barrel makes with the horizontal
-        if (centerMinusY != 0)
-            angle = Math.atan(touchPoint.x / centerMinusY);
+    public void releaseResources() {
+        //nothing may post sounds or use the auto player any more
+        startupExecutor.shutdownNow();
+        journalWriter.shutdown(); //a journal being written is finished first
+        try {
+            if (!simulationLoop.shutdown(LOOP_TIMEOUT_MS, TimeUnit.MILLISECONDS) ||
+                    !renderLoop.shutdown(LOOP_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                Log.w(TAG, "a game loop did not end within " + LOOP_TIMEOUT_MS + " ms");
+            startupExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (twoPlayerSession != null)
+            endTwoPlayerGame();
+        if (audioEngine != null) {
+            audioEngine.release();
+            audioEngine = null;
+        }
+        autoAimEnabled = false;
+        if (autoPlayer != null) {
+            autoPlayer.shutdown();
+            autoPlayer = null;
+        }
+        if (staticLayer != null) {
+            staticLayer.recycle();
+            staticLayer = null;
+        }
+    }
 
-        //if the touch is on the lower part of the screen
-        if (touchPoint.y > screenHeight / 2)
-            angle += Math.PI;
+    //pauses the game where it is, the world keeps its state until resumeGame or a new surface
+    public void stopGame() {
+        stopThreads();
+        Log.i(TAG, frameStats.dump());
+        Log.i(TAG, qualityGovernor.dump());
+        LockstepSession session = twoPlayerSession;
+        if (session != null)
+            Log.i(TAG, session.dump());
+    }
 
-        //calculate the end point of the cannon barrel
-        barrelEnd.x = (int) (cannonLength * Math.sin(angle));
-        barrelEnd.y = (int) (-cannonLength * Math.cos(angle) + screenHeight / 2);
+    //opens a link to another device and starts a two player game on it once the link is open; player
+    //is 0 or 1 and the other device must use the other one and this device's address. Called on the UI thread.
+    public void startTwoPlayerGame(final int localPort, final String peerHost, final int peerPort, final int player) {
+        Thread opener = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final LockstepPeer peer;
+                try {
+                    peer = new LockstepPeer(new InetSocketAddress(localPort));
+                    try {
+                        peer.connect(new InetSocketAddress(peerHost, peerPort));
+                    } catch (IOException e) {
+                        peer.close();
+                        throw e;
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "could not reach the other player at " + peerHost + ":" + peerPort, e);
+                    return;
+                }
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        beginTwoPlayerGame(peer, player);
+                    }
+                });
+            }
+        }, "TwoPlayerOpen");
+        opener.start();
+    }
 
-        return angle;
+    //swaps the game for a two player one over the given link, on the UI thread
+    private void beginTwoPlayerGame(LockstepPeer peer, int player) {
+        stopThreads();
+        if (twoPlayerSession != null)
+            endTwoPlayerGame();
+        twoPlayerPeer = peer;
+        inputJournal.discard();
+        autoAimEnabled = false;
+        cannonThread.setTickRate(TWO_PLAYER_TICK_RATE);
+        world.setCannonballLimit(GameWorld.DEFAULT_CANNONBALL_CAPACITY);
+        world.setRapidFire(false);
+        world.setPlayers(2);
+        world.setSize(1, TWO_PLAYER_HEIGHT);
+        world.newGame();
+        LockstepSession session = new LockstepSession(world, peer, player, 1.0 / TWO_PLAYER_TICK_RATE,
+                TWO_PLAYER_INPUT_DELAY, TWO_PLAYER_MAX_PREDICTION);
+        session.setListener(this);
+        gameEnded = false;
+        twoPlayerSession = session;
+        if (getWidth() != 0)
+            layoutSurface(surfaceWidth, surfaceHeight); //fits the new world and draws both cannons
+        publishSnapshot(System.nanoTime(), 0);
+        if (surfaceReady)
+            startThreads();
+    }
 
+    //back to playing alone, only while the threads are stopped
+    private void endTwoPlayerGame() {
+        Log.i(TAG, twoPlayerSession.dump());
+        twoPlayerSession = null;
+        try {
+            twoPlayerPeer.close();
+        } catch (IOException e) {
+            Log.w(TAG, "could not close the link to the other player", e);
+        }
+        twoPlayerPeer = null;
+        world.setListener(this);
+        world.setPlayers(1);
+        if (getWidth() != 0) {
+            world.setSize(1, (float) getHeight() / getWidth());
+            layoutSurface(surfaceWidth, surfaceHeight);
+        }
     }
 
-    public void releaseResources() {
-        soundPool.release();
-        soundPool = null;
+    //the two player game in progress, null when playing alone
+    public LockstepSession getTwoPlayerSession() {
+        return twoPlayerSession;
     }
 
-    public void stopGame() {
-        if (cannonThread != null){
-            cannonThread.setRunning(false);
-        }
+    //carries on a paused game if the surface outlived the pause, called on the UI thread
+    public void resumeGame() {
+        if (surfaceReady && !simulationLoop.isRunning())
+            startThreads();
     }
 
     public void fireCannonBall(MotionEvent e) {
-        if (cannonballOnScreen)
-            return;
-        double angle = alignCannon(e); //get the cannonbarrel's angle
+        commandQueue.offer(CommandQueue.FIRE, e.getX() / touchScale, e.getY() / touchScale);
+    }
 
-        //move the cannonball inside the cannon
-        cannonball.x = cannonballRadius;
-        cannonball.y = screenHeight / 2;
+    //switches between one cannonball at a time and many
+    public void toggleRapidFire() {
+        commandQueue.offer(CommandQueue.TOGGLE_RAPID_FIRE, 0, 0);
+    }
 
-        //getting the x component of total velocity
-        cannonballVelocityX = (int) (cannonballSpeed * Math.sin(angle));
+    //lets the game play itself, returns whether auto-aim is now on; needs API 21
+    public boolean toggleAutoAim() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || twoPlayerSession != null)
+            return false;
+        if (autoPlayer == null)
+            autoPlayer = new AutoPlayer();
+        autoAimEnabled = !autoAimEnabled;
+        return autoAimEnabled;
+    }
 
-        //getting the Y component of the total velocity
-        cannonballVelocityY = (int) (-cannonballSpeed * Math.cos(angle));
-        cannonballOnScreen = true;
-        ++shotsFired;
+    //works out the area of the screen that changes in the next frame, called by the RenderThread
+    //before locking the surface; returns false if nothing has to be drawn
+    boolean prepareFrame(WorldSnapshot snapshot, float alpha, Rect dirty) {
+        QualityGovernor.Level quality = renderQuality;
+        if (quality != appliedRenderQuality) {
+            textPaint.setAntiAlias(quality.isAntiAlias());
+            appliedRenderQuality = quality;
+            dirtyRegion.invalidateAll();
+        }
+        if (staticLayer == null)
+            buildStaticLayer(surfaceWidth, surfaceHeight, snapshot);
+        dirtyRegion.begin();
+
+        //the timer text, only when the displayed value changes
+        if (timerText.update(snapshot.timeLeft))
+            dirtyRegion.add(0, 0, surfaceWidth, hudBottom);
+
+        //every cannonball
+        float radius = snapshot.cannonballRadius;
+        for (int i = 0; i < snapshot.cannonballCount; ++i) {
+            float x = interpolate(snapshot.previousCannonballX[i], snapshot.cannonballX[i], alpha);
+            float y = interpolate(snapshot.previousCannonballY[i], snapshot.cannonballY[i], alpha);
+            dirtyRegion.addWorld(x - radius, y - radius, x + radius, y + radius);
+        }
 
-        //play cannon fired sound
-        soundPool.play(soundMap.get(CANNON_SOUND_ID), 1, 1, 1, 0, 1f);
+        //the cannon barrels
+        for (int p = 0; p < snapshot.cannonCount; ++p) {
+            float cannonCenterY = snapshot.cannonY[p];
+            dirtyRegion.addWorld(0, Math.min(cannonCenterY, snapshot.barrelEndY[p]),
+                    snapshot.barrelEndX[p], Math.max(cannonCenterY, snapshot.barrelEndY[p]));
+        }
+
+        //the blockers and targets, allowing for the stroke width
+        float halfWidth = blockerPaint.getStrokeWidth() / 2;
+        for (int i = 0; i < snapshot.lineCount; ++i) {
+            float startX = interpolate(snapshot.previousLineStartX[i], snapshot.lineStartX[i], alpha);
+            float startY = interpolate(snapshot.previousLineStartY[i], snapshot.lineStartY[i], alpha);
+            float endX = startX + snapshot.lineEndX[i] - snapshot.lineStartX[i];
+            float endY = startY + snapshot.lineEndY[i] - snapshot.lineStartY[i];
+            dirtyRegion.addWorld(Math.min(startX, endX) - halfWidth, Math.min(startY, endY) - halfWidth,
+                    Math.max(startX, endX) + halfWidth, Math.max(startY, endY) + halfWidth);
+        }
+
+        //the particles, the streaks of all of them lie in one box
+        if (snapshot.particleTotal > 0) {
+            float halfStroke = particlePaints[0].getStrokeWidth() / 2;
+            dirtyRegion.addWorld(snapshot.particleMinX - halfStroke, snapshot.particleMinY - halfStroke,
+                    snapshot.particleMaxX + halfStroke, snapshot.particleMaxY + halfStroke);
+        }
+
+        //the statistics overlay, only when its text is refreshed
+        if (statsOverlayEnabled) {
+            long now = System.nanoTime();
+            if (now - overlayUpdatedNanos >= OVERLAY_REFRESH_NANOS) {
+                overlayLines = (frameStats.dump() + "\n" + qualityGovernor.dump()).split("\n");
+                overlayUpdatedNanos = now;
+                dirtyRegion.add(0, overlayTop(), surfaceWidth, surfaceHeight);
+            }
+        }
+
+        return dirtyRegion.finish(dirty);
     }
 
-    public void drawGameElements(Canvas canvas) {
-        //clear the background
-        canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), backgroundPaint);
+    //where the first line of the overlay starts
+    private float overlayTop() {
+        return surfaceHeight - (overlayLines.length + 1) * overlayPaint.getTextSize();
+    }
+
+    //makes the next frame redraw the whole screen
+    void invalidateFrame() {
+        dirtyRegion.invalidateAll();
+    }
+
+    //draws a snapshot of the game over the dirty area, alpha is how far we are between its tick and the next
+    public void drawGameElements(Canvas canvas, WorldSnapshot snapshot, float alpha, Rect dirty) {
+        int allocationsBefore = countAllocations ? threadAllocations() : 0;
+
+        //restore the background and the barrel base from the static layer
+        if (staticLayer != null) {
+            canvas.drawBitmap(staticLayer, dirty, dirty, null);
+        } else {
+            canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), backgroundPaint);
+            for (int p = 0; p < snapshot.cannonCount; ++p)
+                canvas.drawCircle(0, snapshot.cannonY[p] * worldScale, snapshot.cannonBaseRadius * worldScale,
+                        cannonPaint);
+        }
 
         //display time remaining
-        canvas.drawText(getResources().getString(R.string.time_remaining_format, timeLeft), 30, 50, textPaint);
+        canvas.drawText(timerText.getChars(), 0, timerText.length(), hudX, hudY, textPaint);
 
-        //if cannonball is on screen draw it
-        if (cannonballOnScreen)
-            canvas.drawCircle(cannonball.x, cannonball.y, cannonballRadius, cannonballPaint);
+        //the game elements are drawn in world units through one scale onto the screen
+        canvas.save();
+        canvas.scale(worldScale, worldScale);
+
+        //draw every cannonball on screen
+        for (int i = 0; i < snapshot.cannonballCount; ++i) {
+            canvas.drawCircle(interpolate(snapshot.previousCannonballX[i], snapshot.cannonballX[i], alpha),
+                    interpolate(snapshot.previousCannonballY[i], snapshot.cannonballY[i], alpha),
+                    snapshot.cannonballRadius, cannonballPaint);
+        }
 
         //draw the cannonbarrel
-        canvas.drawLine(0, screenHeight / 2, barrelEnd.x, barrelEnd.y, cannonPaint);
+        for (int p = 0; p < snapshot.cannonCount; ++p)
+            canvas.drawLine(0, snapshot.cannonY[p], snapshot.barrelEndX[p], snapshot.barrelEndY[p], cannonPaint);
+
+        //draw the blockers and the target pieces that haven't been hit
+        for (int i = 0; i < snapshot.lineCount; ++i)
+            drawLine(canvas, snapshot, i, alpha);
+
+        //each kind of particle is one batch of streaks, up to the budget
+        int particlesLeft = particleBudget;
+        for (int kind = 0; kind < ParticleSystem.KINDS && particlesLeft > 0; ++kind) {
+            int count = Math.min(snapshot.particleCount[kind], particlesLeft);
+            if (count > 0)
+                canvas.drawLines(snapshot.particleStreaks, snapshot.particleStart[kind] * 4, count * 4,
+                        particlePaints[kind]);
+            particlesLeft -= count;
+        }
+        canvas.restore();
+
+        //the statistics overlay, drawn over the game at the bottom of the screen
+        if (statsOverlayEnabled) {
+            float lineHeight = overlayPaint.getTextSize();
+            float y = overlayTop();
+            for (String line : overlayLines)
+                canvas.drawText(line, 10, y += lineHeight, overlayPaint);
+        }
 
-        //draw the barrel base
-        canvas.drawCircle(0, screenHeight / 2, cannonBaseRadius, cannonPaint);
+        if (countAllocations) {
+            drawAllocations = threadAllocations() - allocationsBefore;
+            frameStats.recordAllocations(drawAllocations);
+        }
+    }
 
-        //draw the blocker
-        canvas.drawLine(blocker.start.x, blocker.start.y, blocker.end.x, blocker.end.y, blockerPaint);
+    //draws everything that never moves into an offscreen bitmap the size of the view
+    //called by the RenderThread, the UI thread only drops it while the threads are stopped
+    private void buildStaticLayer(int w, int h, WorldSnapshot snapshot) {
+        if (w <= 0 || h <= 0)
+            return;
 
-        Point currentPoint = new Point(); //start of current target position
+        staticLayer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(staticLayer);
+        canvas.drawRect(0, 0, w, h, backgroundPaint);
+        canvas.scale(worldScale, worldScale);
+        for (int p = 0; p < snapshot.cannonCount; ++p)
+            canvas.drawCircle(0, snapshot.cannonY[p], snapshot.cannonBaseRadius, cannonPaint);
+    }
 
-        //initialize the curposition to the starting point of the target
-        currentPoint.x = target.start.x;
-        currentPoint.y = target.start.y;
+    private void drawLine(Canvas canvas, WorldSnapshot snapshot, int line, float alpha) {
+        float startX = interpolate(snapshot.previousLineStartX[line], snapshot.lineStartX[line], alpha);
+        float startY = interpolate(snapshot.previousLineStartY[line], snapshot.lineStartY[line], alpha);
+        float dx = snapshot.lineEndX[line] - snapshot.lineStartX[line];
+        float dy = snapshot.lineEndY[line] - snapshot.lineStartY[line];
+        if (snapshot.lineType[line] != Line.TARGET) {
+            canvas.drawLine(startX, startY, startX + dx, startY + dy, blockerPaint);
+            return;
+        }
 
-        //draw the target
-        for (int i = 1; i< TARGET_PIECES; ++i){
+        int pieces = snapshot.linePieces[line];
+        int hitMask = snapshot.lineHitMask[line];
+        float pieceX = dx / pieces;
+        float pieceY = dy / pieces;
+        for (int i = 0; i < pieces; ++i) {
+            if ((hitMask & (1 << i)) == 0)
+                canvas.drawLine(startX, startY, startX + pieceX, startY + pieceY, targetPiecePaints[i]);
+            startX += pieceX;
+            startY += pieceY;
+        }
+    }
 
-            //if this target piece is not hit, draw it
-            if (!hitStates[i - 1]) {
-                //alternate colours on the pieces
-                if (i % 2 == 0) {
-                    targetPaint.setColor(Color.YELLOW);
-                } else {
-                    targetPaint.setColor(Color.BLUE);
-                }
-                canvas.drawLine(currentPoint.x, currentPoint.y, target.end.x, (int)(currentPoint.y + pieceLength), targetPaint);
-            }
+    //starts or stops counting the objects allocated by each drawGameElements call
+    @SuppressWarnings("deprecation")
+    public void setAllocationCounting(boolean enabled) {
+        if (enabled)
+            Debug.startAllocCounting();
+        else
+            Debug.stopAllocCounting();
+        countAllocations = enabled;
+    }
+
+    //objects this thread allocated since counting started
+    @SuppressWarnings("deprecation")
+    private static int threadAllocations() {
+        return Debug.getThreadAllocCount();
+    }
+
+    //objects allocated by the last drawGameElements call while counting is on
+    public int getDrawAllocations() {
+        return drawAllocations;
+    }
+
+    //update, draw, lock and frame timings since the view was created or the stats were last reset
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    //shows the frame statistics at the bottom of the screen
+    public void setStatsOverlayEnabled(boolean enabled) {
+        statsOverlayEnabled = enabled;
+        overlayUpdatedNanos = 0;
+        dirtyRegion.invalidateAll(); //clear the old overlay away
+    }
+
+    //caps the particles drawn in each frame, the rest still move but aren't shown
+    public void setParticleBudget(int particles) {
+        particleBudget = Math.max(0, Math.min(particles, PARTICLE_CAPACITY));
+    }
+
+    public int getParticleBudget() {
+        return particleBudget;
+    }
+
+    //times the HUD timer text had to be reformatted
+    public int getTimerFormatCount() {
+        return timerText.getFormatCount();
+    }
+
+    private static float interpolate(float previous, float current, float alpha) {
+        return previous + (current - previous) * alpha;
+    }
 
-            //move curpoint to the start of the next piece
-            currentPoint.y += pieceLength;
+    //resumes both loops, their threads are only created the first time. Once the game has ended
+    //only the render loop runs, to draw the final frame on a new surface, until newGame().
+    private void startThreads() {
+        dirtyRegion.invalidateAll(); //a new surface or renderer starts from a blank screen
+        renderThread.setRenderer(renderer);
+        if (!gameEnded)
+            simulationLoop.resume();
+        renderLoop.resume();
+    }
+
+    //pauses both loops and waits for the passes in progress, so the world can be touched
+    private void stopThreads() {
+        simulationLoop.pause();
+        renderLoop.pause();
+        try {
+            if (!simulationLoop.awaitPaused(LOOP_TIMEOUT_MS, TimeUnit.MILLISECONDS) ||
+                    !renderLoop.awaitPaused(LOOP_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                Log.w(TAG, "a game loop did not pause within " + LOOP_TIMEOUT_MS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); //leave it to whoever interrupted us
         }
     }
 
     @Override
     public void surfaceCreated(SurfaceHolder surfaceHolder) {
-        cannonThread = new CannonThread(surfaceHolder);
-        cannonThread.setRunning(true);
-        cannonThread.start();
+        StartupTracer.mark("surface created");
+        surfaceReady = true;
+        renderer = preferredRenderer != null ? preferredRenderer : Renderers.forDevice(surfaceHolder);
+        startThreads();
     }
 
-    @Override
-    public void surfaceChanged(SurfaceHolder surfaceHolder, int i, int i1, int i2) {
+    //starts the game drawing into the given renderer instead of the surface, for tests and benchmarks
+    void startHeadless(Renderer headlessRenderer) {
+        stopThreads();
+        surfaceReady = true;
+        renderer = headlessRenderer;
+        startThreads();
+    }
+
+    //uses the given renderer from the next time the surface is created instead of the device default
+    void setPreferredRenderer(Renderer renderer) {
+        preferredRenderer = renderer;
+    }
+
+    //the renderer in use, null until the surface exists
+    public String getRendererName() {
+        Renderer current = renderThread.getRenderer();
+        return renderLoop.isRunning() && current != null ? current.getName() : null;
+    }
 
+    //moving average of the time the render thread spends on a frame
+    public long getAverageFrameNanos() {
+        return renderThread.getAverageFrameNanos();
+    }
+
+    //the same for drawing alone, which the quality governor weighs
+    long getAverageDrawNanos() {
+        return renderThread.getAverageDrawNanos();
+    }
+
+    //the current quality level and the decisions that led to it
+    public QualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder surfaceHolder, int format, int width, int height) {
+        //the governor changed the surface size, draw for the new one
+        if (getWidth() == 0 || (width == surfaceWidth && height == surfaceHeight))
+            return;
+        boolean running = simulationLoop.isRunning() || gameEnded; //an ended game still shows its last frame
+        stopThreads();
+        layoutSurface(width, height);
+        if (running && surfaceReady)
+            startThreads();
     }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder surfaceHolder) {
-        //ensure the thread terminates correctly
-        boolean retry = true;
-        cannonThread.setRunning(false);
-
-        while(retry){
-            try {
-                cannonThread.join();
-                retry = false;
-            }catch (InterruptedException e){
-            }
-        }
+        //ensure the threads terminate correctly before the surface goes away
+        surfaceReady = false;
+        stopThreads();
     }
 }
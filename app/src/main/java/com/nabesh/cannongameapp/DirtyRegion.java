@@ -0,0 +1,60 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Rect;
+
+//tracks the screen area covered by moving elements this frame and the last one,
+//which together are all that has to be redrawn over the static layer
+class DirtyRegion {
+    private final Rect current = new Rect();
+    private final Rect previous = new Rect();
+    private int width;
+    private int height;
+    private float scale; //pixels per world unit
+    private boolean full = true;
+
+    //starts over for a screen of the given size in pixels showing the world at the given scale,
+    //the next frame is redrawn completely
+    void reset(int width, int height, float scale) {
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        previous.setEmpty();
+        full = true;
+    }
+
+    //makes the next frame a complete redraw
+    void invalidateAll() {
+        full = true;
+    }
+
+    //starts collecting the area covered by this frame
+    void begin() {
+        current.setEmpty();
+    }
+
+    //adds the box something is drawn in this frame
+    void add(float left, float top, float right, float bottom) {
+        current.union((int) Math.floor(left), (int) Math.floor(top),
+                (int) Math.ceil(right), (int) Math.ceil(bottom));
+    }
+
+    //adds the box something is drawn in this frame in world units, with a pixel around it for antialiasing
+    void addWorld(float left, float top, float right, float bottom) {
+        add(left * scale - 1, top * scale - 1, right * scale + 1, bottom * scale + 1);
+    }
+
+    //writes the area to redraw into out, returns false if nothing has to be drawn
+    boolean finish(Rect out) {
+        if (full) {
+            out.set(0, 0, width, height);
+        } else {
+            out.set(previous);
+            out.union(current);
+            if (!out.intersect(0, 0, width, height))
+                out.setEmpty();
+        }
+        previous.set(current);
+        full = false;
+        return !out.isEmpty();
+    }
+}
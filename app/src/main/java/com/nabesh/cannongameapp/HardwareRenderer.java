@@ -0,0 +1,61 @@
+package com.nabesh.cannongameapp;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+//draws each frame with the GPU through Surface.lockHardwareCanvas, available from API 26;
+//falls back to the software path for good if the surface refuses a hardware canvas
+@TargetApi(Build.VERSION_CODES.O)
+class HardwareRenderer implements Renderer {
+    private final SurfaceHolder surfaceHolder;
+    private final SoftwareRenderer fallback;
+    private boolean useFallback;
+
+    HardwareRenderer(SurfaceHolder holder) {
+        surfaceHolder = holder;
+        fallback = new SoftwareRenderer(holder);
+    }
+
+    @Override
+    public String getName() {
+        return useFallback ? "hardware (software fallback)" : "hardware";
+    }
+
+    @Override
+    public boolean isPacedByDisplay() {
+        return true;
+    }
+
+    @Override
+    public Canvas beginFrame(Rect dirty) {
+        if (useFallback)
+            return fallback.beginFrame(dirty);
+
+        Surface surface = surfaceHolder.getSurface();
+        if (surface == null || !surface.isValid())
+            return null;
+        Canvas canvas;
+        try {
+            canvas = surface.lockHardwareCanvas();
+        } catch (IllegalStateException e) {
+            useFallback = true;
+            return fallback.beginFrame(dirty);
+        }
+
+        //hardware buffers are not preserved between frames, so everything is redrawn
+        dirty.set(0, 0, canvas.getWidth(), canvas.getHeight());
+        return canvas;
+    }
+
+    @Override
+    public void endFrame(Canvas canvas) {
+        if (useFallback)
+            fallback.endFrame(canvas);
+        else
+            surfaceHolder.getSurface().unlockCanvasAndPost(canvas);
+    }
+}
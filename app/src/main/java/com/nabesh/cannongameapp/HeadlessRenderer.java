@@ -0,0 +1,71 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.Rect;
+
+//renders without a surface for tests and benchmarks, either into a canvas that
+//discards everything or into a Picture that keeps the last frame's drawing commands
+class HeadlessRenderer implements Renderer {
+    private final boolean recording;
+    private final int width;
+    private final int height;
+    private final Canvas discardCanvas;
+    private volatile Picture lastFrame; //read by tests on their own thread
+    private Picture recordingFrame;
+    private volatile int frameCount;
+
+    private HeadlessRenderer(boolean recording, int width, int height) {
+        this.recording = recording;
+        this.width = width;
+        this.height = height;
+        discardCanvas = recording ? null : new Canvas();
+    }
+
+    //a renderer whose frames go nowhere
+    static HeadlessRenderer noOp() {
+        return new HeadlessRenderer(false, 0, 0);
+    }
+
+    //a renderer recording each frame of the given size into a Picture
+    static HeadlessRenderer recording(int width, int height) {
+        return new HeadlessRenderer(true, width, height);
+    }
+
+    @Override
+    public String getName() {
+        return recording ? "headless (recording)" : "headless";
+    }
+
+    @Override
+    public boolean isPacedByDisplay() {
+        return false;
+    }
+
+    @Override
+    public Canvas beginFrame(Rect dirty) {
+        if (!recording)
+            return discardCanvas;
+        dirty.set(0, 0, width, height);
+        recordingFrame = new Picture();
+        return recordingFrame.beginRecording(width, height);
+    }
+
+    @Override
+    public void endFrame(Canvas canvas) {
+        if (recording) {
+            recordingFrame.endRecording();
+            lastFrame = recordingFrame;
+        }
+        ++frameCount;
+    }
+
+    //the drawing commands of the last finished frame, null unless recording
+    Picture getLastFrame() {
+        return lastFrame;
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nabesh.cannongameapp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.nabesh.cannongameapp.core.LevelPack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+//opens level packs shipped in the app's assets
+final class LevelAssets {
+    private static final String TAG = "LevelAssets";
+
+    private LevelAssets() {
+    }
+
+    //the pack in the named asset, or null if it is missing or broken. The asset is stored
+    //uncompressed (see noCompress in build.gradle) so it is memory-mapped straight out of the
+    //APK and only the pages of the levels actually played are ever read.
+    static LevelPack open(Context context, String name) {
+        AssetManager assets = context.getAssets();
+        try {
+            ByteBuffer buffer;
+            try {
+                buffer = map(assets, name);
+            } catch (IOException e) {
+                buffer = read(assets, name); //compressed after all, fall back to the heap
+            }
+            return new LevelPack(buffer);
+        } catch (IOException e) {
+            Log.w(TAG, "could not open level pack " + name + ", using the default level", e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(AssetManager assets, String name) throws IOException {
+        AssetFileDescriptor descriptor = assets.openFd(name);
+        try {
+            FileInputStream in = descriptor.createInputStream();
+            try {
+                //the mapping stays valid after the channel is closed
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        descriptor.getStartOffset(), descriptor.getDeclaredLength());
+            } finally {
+                in.close();
+            }
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    private static ByteBuffer read(AssetManager assets, String name) throws IOException {
+        InputStream in = assets.open(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int n; (n = in.read(chunk)) > 0; )
+                out.write(chunk, 0, n);
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+}
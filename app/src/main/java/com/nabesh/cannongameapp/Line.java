@@ -1,13 +0,0 @@
-package com.nabesh.cannongameapp;
-
-import android.graphics.Point;
-
-public class Line {
-    public Point start;
-    public Point end;
-
-    public Line() {
-        start = new Point(0, 0);
-        end = new Point(0, 0);
-    }
-}
@@ -0,0 +1,135 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import com.nabesh.cannongameapp.core.FrameStats;
+import com.nabesh.cannongameapp.core.GameLoop;
+import com.nabesh.cannongameapp.core.WorldSnapshot;
+
+//draws the newest snapshot published by the simulation, run on the long-lived render thread by a GameLoop
+class RenderThread implements GameLoop.Body {
+
+    //how long to wait for the surface when it cannot be locked
+    private static final long SURFACE_RETRY_NANOS = 16000000L;
+
+    //one display frame, how often renderers the display does not pace draw and how often an idle loop looks for changes
+    private static final long DISPLAY_FRAME_NANOS = 1000000000L / 60;
+
+    private Renderer renderer;
+    private final CannonView cannonView;
+    private final FrameStats frameStats;
+    private final Rect dirty = new Rect(); //area redrawn in the current frame
+    private long lastPresented; //when the previous pass put a frame on screen, 0 if it did not
+
+    //how long frames take with this renderer, from beginFrame to the end of endFrame
+    private volatile long lastFrameNanos;
+    private volatile long averageFrameNanos;
+    private volatile long averageDrawNanos; //drawing alone, without waiting for the surface
+    private volatile long frameCount;
+
+    public RenderThread(CannonView view) {
+        cannonView = view;
+        frameStats = view.getFrameStats();
+    }
+
+    //draws with the given renderer from now on, only while the loop is paused
+    public void setRenderer(Renderer renderer) {
+        if (renderer != this.renderer) {
+            this.renderer = renderer;
+            frameCount = 0; //the averages are per renderer
+            lastFrameNanos = 0;
+            averageFrameNanos = 0;
+            averageDrawNanos = 0;
+        }
+    }
+
+    //the screen was not drawn while paused
+    @Override
+    public void onResume() {
+        lastPresented = 0;
+    }
+
+    @Override
+    public long runOnce() {
+        long frameStart = System.nanoTime();
+        WorldSnapshot snapshot = cannonView.acquireSnapshot();
+        float alpha = snapshot.alphaAt(frameStart);
+
+        //nothing moved: no frame is due, which is neither a dropped frame nor a lost surface, so the
+        //statistics skip it and the frame after it doesn't count the gap. Look again a display frame later.
+        if (!cannonView.prepareFrame(snapshot, alpha, dirty)){
+            lastPresented = 0;
+            if (snapshot.last)
+                cannonView.onLastFrameDrawn(); //already on screen
+            return DISPLAY_FRAME_NANOS - (System.nanoTime() - frameStart);
+        }
+
+        Canvas canvas = null;
+        long lockNanos = 0;
+        long drawNanos = 0;
+        try {
+            long lockStart = System.nanoTime();
+            canvas = renderer.beginFrame(dirty);
+            lockNanos = System.nanoTime() - lockStart;
+            if (canvas != null){
+                long drawStart = System.nanoTime();
+                cannonView.drawGameElements(canvas, snapshot, alpha, dirty);
+                drawNanos = System.nanoTime() - drawStart;
+            }
+        } finally {
+            if (canvas != null){
+                long unlockStart = System.nanoTime();
+                renderer.endFrame(canvas);
+                lockNanos += System.nanoTime() - unlockStart;
+            }
+        }
+
+        if (canvas == null){
+            //the surface isn't ready: the frame was wanted and missed, so the interval keeps running
+            //and the next frame shows the gap as dropped frames
+            cannonView.invalidateFrame(); //the change never reached the screen
+            return SURFACE_RETRY_NANOS;
+        }
+        long presented = System.nanoTime();
+        frameStats.recordDraw(drawNanos);
+        frameStats.recordLockWait(lockNanos);
+        if (lastPresented != 0)
+            frameStats.recordFrameInterval(presented - lastPresented);
+        lastPresented = presented;
+
+        recordFrame(presented - frameStart, drawNanos);
+        StartupTracer.firstFrame();
+        if (snapshot.last)
+            cannonView.onLastFrameDrawn(); //nothing will change behind the game over dialog
+        return renderer.isPacedByDisplay() ? 0 : DISPLAY_FRAME_NANOS - lastFrameNanos;
+    }
+
+    private void recordFrame(long frameNanos, long drawNanos) {
+        lastFrameNanos = frameNanos;
+        //exponential moving averages over roughly the last 32 frames
+        averageFrameNanos = frameCount == 0 ? frameNanos : averageFrameNanos + (frameNanos - averageFrameNanos) / 32;
+        averageDrawNanos = frameCount == 0 ? drawNanos : averageDrawNanos + (drawNanos - averageDrawNanos) / 32;
+        ++frameCount;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    public long getAverageFrameNanos() {
+        return averageFrameNanos;
+    }
+
+    public long getAverageDrawNanos() {
+        return averageDrawNanos;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+}
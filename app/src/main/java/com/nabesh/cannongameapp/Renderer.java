@@ -0,0 +1,21 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+//a backend that supplies the canvas drawGameElements draws each frame on and shows the result
+interface Renderer {
+
+    //short name used when comparing backends
+    String getName();
+
+    //true if endFrame blocks until the display wants a new frame
+    boolean isPacedByDisplay();
+
+    //a canvas for the next frame, or null if no frame can be drawn right now; dirty is the area
+    //that changed and is grown to whatever the backend needs redrawn, everything outside it is kept
+    Canvas beginFrame(Rect dirty);
+
+    //shows the frame drawn on the canvas returned by beginFrame
+    void endFrame(Canvas canvas);
+}
@@ -0,0 +1,18 @@
+package com.nabesh.cannongameapp;
+
+import android.os.Build;
+import android.view.SurfaceHolder;
+
+//picks the rendering backend for this device
+final class Renderers {
+
+    private Renderers() {
+    }
+
+    //the hardware canvas where the platform has one, otherwise the software one
+    static Renderer forDevice(SurfaceHolder holder) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            return new HardwareRenderer(holder);
+        return new SoftwareRenderer(holder);
+    }
+}
@@ -0,0 +1,35 @@
+package com.nabesh.cannongameapp;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+//rasterises each frame on the CPU through SurfaceHolder.lockCanvas, works on every device
+class SoftwareRenderer implements Renderer {
+    private final SurfaceHolder surfaceHolder;
+
+    SoftwareRenderer(SurfaceHolder holder) {
+        surfaceHolder = holder;
+    }
+
+    @Override
+    public String getName() {
+        return "software";
+    }
+
+    @Override
+    public boolean isPacedByDisplay() {
+        return true;
+    }
+
+    @Override
+    public Canvas beginFrame(Rect dirty) {
+        //the surface copies the rest of the last frame forward and may grow the rectangle
+        return surfaceHolder.lockCanvas(dirty);
+    }
+
+    @Override
+    public void endFrame(Canvas canvas) {
+        surfaceHolder.unlockCanvasAndPost(canvas);
+    }
+}
@@ -0,0 +1,64 @@
+package com.nabesh.cannongameapp;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+//times the stages of a cold start from process start, and logs them all once the first frame
+//is on screen; every stage after that is only logged as it happens
+final class StartupTracer {
+    private static final String TAG = "StartupTracer";
+    private static final int MAX_STAGES = 16;
+
+    private static final long processStart = processStartMillis();
+    private static final String[] stages = new String[MAX_STAGES];
+    private static final long[] stageMillis = new long[MAX_STAGES];
+    private static int stageCount;
+    private static volatile long firstFrameMillis = -1;
+
+    private StartupTracer() {
+    }
+
+    //records that a stage of startup has just finished, from any thread
+    static synchronized void mark(String stage) {
+        long millis = SystemClock.elapsedRealtime() - processStart;
+        if (firstFrameMillis >= 0) {
+            Log.i(TAG, stage + " at " + millis + " ms, after the first frame");
+            return;
+        }
+        if (stageCount < MAX_STAGES) {
+            stages[stageCount] = stage;
+            stageMillis[stageCount] = millis;
+            ++stageCount;
+        }
+    }
+
+    //records the first frame reaching the screen and logs the startup; later calls do nothing
+    static void firstFrame() {
+        if (firstFrameMillis >= 0)
+            return;
+        synchronized (StartupTracer.class) {
+            if (firstFrameMillis >= 0)
+                return;
+            mark("first frame");
+            StringBuilder summary = new StringBuilder("cold start:");
+            for (int i = 0; i < stageCount; ++i)
+                summary.append(' ').append(stages[i]).append(' ').append(stageMillis[i]).append(" ms,");
+            summary.setLength(summary.length() - 1);
+            firstFrameMillis = stageMillis[stageCount - 1];
+            Log.i(TAG, summary.toString());
+        }
+    }
+
+    //milliseconds from process start to the first frame, -1 until it has been drawn
+    static long getTimeToFirstFrameMillis() {
+        return firstFrameMillis;
+    }
+
+    private static long processStartMillis() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+            return Process.getStartElapsedRealtime();
+        return SystemClock.elapsedRealtime(); //when this class loads, early in onCreate
+    }
+}
@@ -0,0 +1,83 @@
+package com.nabesh.cannongameapp;
+
+import java.text.DecimalFormatSymbols;
+
+//formats the time remaining HUD into a reusable char buffer,
+//only rewriting it when the displayed tenth of a second changes
+class TimerText {
+    private static final String VALUE_FORMAT = "%.1f";
+
+    private final char[] prefix;
+    private final char[] suffix;
+    private final char decimalSeparator;
+    private final char[] buffer;
+    private int length;
+    private long displayedTenths = Long.MIN_VALUE;
+    private int formatCount;
+
+    //format is the time_remaining_format string, e.g. "Time remaining: %.1f seconds"
+    TimerText(String format) {
+        int valueStart = format.indexOf(VALUE_FORMAT);
+        if (valueStart < 0)
+            throw new IllegalArgumentException("format has no " + VALUE_FORMAT + ": " + format);
+        prefix = format.substring(0, valueStart).toCharArray();
+        suffix = format.substring(valueStart + VALUE_FORMAT.length()).toCharArray();
+        decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+        //room for the prefix, suffix, sign, 19 digits and the decimal separator
+        buffer = new char[prefix.length + suffix.length + 21];
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+    }
+
+    //updates the text for the given seconds, returns true if it changed
+    boolean update(double seconds) {
+        long tenths = (long) Math.floor(seconds * 10 + 0.5);
+        if (tenths == displayedTenths)
+            return false;
+        displayedTenths = tenths;
+        ++formatCount;
+
+        int position = prefix.length;
+        if (tenths < 0) {
+            buffer[position++] = '-';
+            tenths = -tenths;
+        }
+
+        //write the whole seconds backwards, then reverse them in place
+        long whole = tenths / 10;
+        int digitsStart = position;
+        do {
+            buffer[position++] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        for (int i = digitsStart, j = position - 1; i < j; ++i, --j) {
+            char swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+
+        buffer[position++] = decimalSeparator;
+        buffer[position++] = (char) ('0' + tenths % 10);
+        System.arraycopy(suffix, 0, buffer, position, suffix.length);
+        length = position + suffix.length;
+        return true;
+    }
+
+    char[] getChars() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    //number of times the text has been rewritten
+    int getFormatCount() {
+        return formatCount;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
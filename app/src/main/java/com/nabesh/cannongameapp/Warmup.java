@@ -0,0 +1,37 @@
+package com.nabesh.cannongameapp;
+
+import com.nabesh.cannongameapp.core.CommandQueue;
+import com.nabesh.cannongameapp.core.GameWorld;
+import com.nabesh.cannongameapp.core.InputJournal;
+import com.nabesh.cannongameapp.core.ReplayEngine;
+import com.nabesh.cannongameapp.core.WorldSnapshot;
+
+//runs the hot game paths once on throwaway objects so the runtime has loaded, verified and
+//started compiling them before the first real game; safe to run on any thread
+final class Warmup {
+    private static final double TICK = 1000.0 / CannonThread.TICK_RATE_60 / 1000;
+    //a world laid out the way CannonView lays it out for a 9:16 screen
+    private static final float WIDTH = 1;
+    private static final float HEIGHT = 16 / 9f;
+
+    private Warmup() {
+    }
+
+    static void run() {
+        //a short rapid fire game that hits the blocker, the target and the walls
+        InputJournal journal = new InputJournal();
+        journal.begin(WIDTH, HEIGHT, TICK, true);
+        for (int tick = 0; tick < 240; tick += 6) {
+            float y = HEIGHT * (0.1f + 0.8f * (tick % 60) / 60f);
+            journal.record(tick, CommandQueue.AIM, WIDTH, y);
+            journal.record(tick, CommandQueue.FIRE, WIDTH, y);
+        }
+        ReplayEngine engine = new ReplayEngine();
+        engine.run(journal);
+
+        //and the copy the simulation makes for the render thread every tick
+        WorldSnapshot snapshot = new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY);
+        for (int i = 0; i < 100; ++i)
+            snapshot.copyFrom(engine.getWorld());
+    }
+}
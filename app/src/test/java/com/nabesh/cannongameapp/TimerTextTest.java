@@ -0,0 +1,43 @@
+package com.nabesh.cannongameapp;
+
+import org.junit.Test;
+
+import java.text.DecimalFormatSymbols;
+
+import static org.junit.Assert.*;
+
+public class TimerTextTest {
+    private static final String FORMAT = "Time remaining: %.1f seconds";
+
+    @Test
+    public void matchesStringFormat() {
+        TimerText text = new TimerText(FORMAT);
+        double[] values = {10, 9.96, 9.94, 0.05, 0, 123.45};
+        for (double value : values) {
+            text.update(value);
+            assertEquals(String.format(FORMAT, value), text.toString());
+        }
+    }
+
+    @Test
+    public void onlyReformatsWhenTenthChanges() {
+        TimerText text = new TimerText(FORMAT);
+        assertTrue(text.update(5.0));
+        assertFalse(text.update(4.98));
+        assertFalse(text.update(5.04));
+        assertTrue(text.update(4.94));
+        assertEquals(2, text.getFormatCount());
+    }
+
+    @Test
+    public void usesTheLocaleDecimalSeparator() {
+        TimerText text = new TimerText("%.1f");
+        text.update(2.5);
+        assertEquals("2" + DecimalFormatSymbols.getInstance().getDecimalSeparator() + "5", text.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFormatWithoutValue() {
+        new TimerText("Time remaining");
+    }
+}
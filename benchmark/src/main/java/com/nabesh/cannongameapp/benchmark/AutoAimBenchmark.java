@@ -0,0 +1,65 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.AutoAimSolver;
+import com.nabesh.cannongameapp.core.GameWorld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+//measures candidate shots simulated per second by the auto-aim search, one operation is one
+//candidate; divide by the thread count for shots per second per core
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoAimBenchmark {
+    private static final double TICK = 1 / 60.0;
+    private static final int ANGLES = 128;
+    private static final int DELAYS = 16;
+
+    //0 searches on the benchmark thread without a pool
+    @Param({"0", "1", "2", "4"})
+    public int threads;
+
+    @Param({"IDLE", "MANY_OBSTACLES"})
+    public Scenario scenario;
+
+    private ForkJoinPool pool;
+    private AutoAimSolver solver;
+    private GameWorld world;
+
+    @Setup
+    public void setUp() {
+        pool = threads > 0 ? new ForkJoinPool(threads) : null;
+        solver = new AutoAimSolver(pool, ANGLES, DELAYS);
+        world = scenario.createWorld();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANGLES * DELAYS)
+    public AutoAimSolver.Shot solve() {
+        return solver.solve(world, TICK, Long.MAX_VALUE);
+    }
+}
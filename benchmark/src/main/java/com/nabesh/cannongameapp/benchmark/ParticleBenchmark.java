@@ -0,0 +1,47 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.ParticleSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//measures one tick of a full particle system, bursts top it back up as particles burn out
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleBenchmark {
+    private static final float TICK = 1 / 60f;
+
+    @Param({"256", "4096"})
+    public int capacity;
+
+    private ParticleSystem particles;
+
+    @Setup
+    public void setUp() {
+        particles = new ParticleSystem(capacity);
+    }
+
+    @Benchmark
+    public int update() {
+        int room = particles.capacity() - particles.count();
+        if (room > 0)
+            particles.burst(ParticleSystem.TARGET_SPARK, room, 0.5f, 0.5f, 0, 0, 0, 1, 0.6f);
+        particles.update(TICK);
+        return particles.count();
+    }
+}
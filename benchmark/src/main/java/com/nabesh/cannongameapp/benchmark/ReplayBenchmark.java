@@ -0,0 +1,50 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.CommandQueue;
+import com.nabesh.cannongameapp.core.InputJournal;
+import com.nabesh.cannongameapp.core.ReplayEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//measures whole recorded games replayed headlessly, one operation is one game from start to game over
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+    private static final double TICK = 1000.0 / 60 / 1000;
+
+    private InputJournal journal;
+    private ReplayEngine engine;
+
+    @Setup
+    public void setUp() {
+        //a rapid fire game that sweeps the cannon up and down, firing every few ticks
+        journal = new InputJournal();
+        journal.begin(Scenario.SCREEN_WIDTH, Scenario.SCREEN_HEIGHT, TICK, true);
+        for (int tick = 0; tick < 60 * 60; tick += 4) {
+            float y = Scenario.SCREEN_HEIGHT * (0.1f + 0.8f * ((tick / 4) % 50) / 50f);
+            journal.record(tick, CommandQueue.AIM, Scenario.SCREEN_WIDTH, y);
+            journal.record(tick, CommandQueue.FIRE, Scenario.SCREEN_WIDTH, y);
+        }
+        engine = new ReplayEngine();
+    }
+
+    @Benchmark
+    public ReplayEngine.Result replay() {
+        return engine.run(journal);
+    }
+}
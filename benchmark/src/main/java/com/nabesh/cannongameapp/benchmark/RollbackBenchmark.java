@@ -0,0 +1,58 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.GameWorld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//measures what a two player rollback costs: restoring the saved state and playing the ticks
+//since again, as LockstepSession does when the other player's commands weren't as predicted
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollbackBenchmark {
+    private static final double TICK = 1 / 60.0;
+
+    @Param({"IDLE", "CROWDED", "MANY_OBSTACLES"})
+    public Scenario scenario;
+
+    //ticks played again, the session's default prediction limit is 8
+    @Param({"2", "8"})
+    public int depth;
+
+    private GameWorld saved;
+    private GameWorld world;
+
+    @Setup
+    public void setUp() {
+        saved = scenario.createWorld();
+        for (int i = 0; i < 30; ++i) {
+            scenario.maintain(saved);
+            saved.step(TICK);
+        }
+        world = new GameWorld();
+        world.copyFrom(saved);
+    }
+
+    @Benchmark
+    public GameWorld rollBack() {
+        world.copyFrom(saved);
+        for (int i = 0; i < depth; ++i)
+            world.step(TICK);
+        return world;
+    }
+}
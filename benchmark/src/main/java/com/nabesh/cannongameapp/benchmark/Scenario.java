@@ -0,0 +1,77 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.GameWorld;
+import com.nabesh.cannongameapp.core.Line;
+
+//the game situations the benchmarks step through
+public enum Scenario {
+    //nothing in flight, only the blocker, target and timer move
+    IDLE(0, Aim.NONE, 0),
+    //one ball always in flight towards the target
+    BALL_IN_FLIGHT(1, Aim.TARGET, 0),
+    //one ball always in flight towards the blocker, exercising the bounce branch
+    BLOCKER_BOUNCE(1, Aim.BLOCKER, 0),
+    //rapid fire keeping hundreds of balls in flight
+    CROWDED(256, Aim.TARGET, 0),
+    //rapid fire through a level of dozens of moving blockers and targets
+    MANY_OBSTACLES(256, Aim.TARGET, 48);
+
+    public static final int SCREEN_WIDTH = 1080;
+    public static final int SCREEN_HEIGHT = 1920;
+
+    private enum Aim {NONE, TARGET, BLOCKER}
+
+    private final int ballsInFlight;
+    private final Aim aim;
+    private final int obstacles;
+
+    Scenario(int ballsInFlight, Aim aim, int obstacles) {
+        this.ballsInFlight = ballsInFlight;
+        this.aim = aim;
+        this.obstacles = obstacles;
+    }
+
+    public GameWorld createWorld() {
+        GameWorld world = new GameWorld();
+        world.setSize(SCREEN_WIDTH, SCREEN_HEIGHT);
+        world.setRapidFire(ballsInFlight > 1);
+        if (obstacles > 0)
+            addObstacles(world);
+        world.newGame();
+        return world;
+    }
+
+    //replaces the default level with columns of short moving blockers and a row of targets
+    private void addObstacles(GameWorld world) {
+        world.clearLines();
+        int targets = obstacles / 6;
+        float length = SCREEN_HEIGHT / 12f;
+        for (int i = 0; i < obstacles - targets; ++i) {
+            float x = SCREEN_WIDTH * (0.3f + 0.4f * (i % 8) / 8);
+            float y = (i * 131) % (SCREEN_HEIGHT - (int) length);
+            float velocity = (i % 2 == 0 ? 1 : -1) * SCREEN_HEIGHT / (4f + i % 5);
+            world.addBlocker(x, y, x, y + length, 0, velocity);
+        }
+        for (int i = 0; i < targets; ++i) {
+            float x = SCREEN_WIDTH * 7 / 8f;
+            float y = i * SCREEN_HEIGHT / (float) targets;
+            world.addTarget(x, y, x, y + length, 0, 0, 4);
+        }
+    }
+
+    //keeps the world in this scenario, restarting and refiring as needed
+    public void maintain(GameWorld world) {
+        if (world.isGameOver())
+            world.newGame();
+        if (aim == Aim.NONE)
+            return;
+
+        //spread the shots over the line so they don't all take the same path
+        Line line = world.findLine(aim == Aim.TARGET ? Line.TARGET : Line.BLOCKER);
+        int live = world.getCannonballs().liveCount();
+        for (int i = live; i < ballsInFlight; ++i) {
+            float spread = (i % 16) / 16f;
+            world.fire(line.startX, line.startY + (line.endY - line.startY) * spread);
+        }
+    }
+}
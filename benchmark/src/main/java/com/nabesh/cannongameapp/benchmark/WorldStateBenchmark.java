@@ -0,0 +1,65 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.GameWorld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+//measures saving a game in progress and restoring it into a world of the other orientation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStateBenchmark {
+    private static final double TICK = 1 / 60.0;
+
+    @Param({"IDLE", "CROWDED", "MANY_OBSTACLES"})
+    public Scenario scenario;
+
+    private GameWorld world;
+    private GameWorld rotated;
+    private ByteBuffer state;
+
+    @Setup
+    public void setUp() throws IOException {
+        world = scenario.createWorld();
+        for (int i = 0; i < 30; ++i) {
+            scenario.maintain(world);
+            world.step(TICK);
+        }
+        rotated = new GameWorld();
+        rotated.setSize(Scenario.SCREEN_HEIGHT, Scenario.SCREEN_WIDTH);
+        state = ByteBuffer.allocate(GameWorld.maxStateBytes(GameWorld.DEFAULT_CANNONBALL_CAPACITY));
+    }
+
+    @Benchmark
+    public int write() {
+        state.clear();
+        world.writeState(state);
+        return state.position();
+    }
+
+    @Benchmark
+    public GameWorld writeAndRestore() throws IOException {
+        state.clear();
+        world.writeState(state);
+        state.flip();
+        rotated.readState(state);
+        return rotated;
+    }
+}
@@ -0,0 +1,45 @@
+package com.nabesh.cannongameapp.benchmark;
+
+import com.nabesh.cannongameapp.core.GameWorld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//measures simulation ticks per second, one operation is one tick of the scenario's world
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark {
+    private static final double TICK = 1 / 60.0;
+
+    @Param({"IDLE", "BALL_IN_FLIGHT", "BLOCKER_BOUNCE", "CROWDED", "MANY_OBSTACLES"})
+    public Scenario scenario;
+
+    private GameWorld world;
+
+    @Setup
+    public void setUp() {
+        world = scenario.createWorld();
+    }
+
+    @Benchmark
+    public int tick() {
+        scenario.maintain(world);
+        world.step(TICK);
+        return world.getCannonballs().liveCount();
+    }
+}
@@ -0,0 +1,215 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//finds a shot for an automatic player by simulating candidate shots, every combination of a
+//firing angle and a delay in ticks, against copies of the world so the predicted motion of the
+//blockers and targets is exactly what the game will do. Candidates are split across a
+//ForkJoinPool, each worker replaying them in its own preallocated world. A solver is meant to be
+//used by one thread at a time.
+public class AutoAimSolver {
+    private static final float MIN_ANGLE = 0.05f; //radians from straight up
+    private static final float MAX_ANGLE = (float) Math.PI - 0.05f;
+    private static final int LEAF_CANDIDATES = 16; //candidates a task evaluates without splitting
+    private static final int MAX_FLIGHT_TICKS = 600; //a shot still flying after this counts as a miss
+
+    //candidate scores, hitting a target early beats hitting it late, blockers cost time
+    private static final float HIT_SCORE = 1000000;
+    private static final float TICK_COST = 10;
+    private static final float BLOCKER_COST = 1000;
+    private static final float NOT_EVALUATED = Float.NEGATIVE_INFINITY;
+
+    private final ForkJoinPool pool; //null to search on the calling thread
+    private final int angles;
+    private final int delays;
+    private final float[] scores;
+    private final float[] directionX; //sine and minus cosine of each candidate angle, worked out once
+    private final float[] directionY;
+
+    //the world every candidate starts from, copied from the live world at the start of a solve
+    private final GameWorld start = new GameWorld();
+    private double tickSeconds;
+    private long solveStart;
+    private long budgetNanos;
+    private int solveCount; //tells the evaluators when start has changed
+
+    //each thread evaluating candidates gets its own worlds, created the first time it helps
+    private final ThreadLocal<Evaluator> evaluators = new ThreadLocal<Evaluator>() {
+        @Override
+        protected Evaluator initialValue() {
+            return new Evaluator();
+        }
+    };
+
+    //the best shot found by a solve
+    public static class Shot {
+        public final float angle; //radians clockwise from straight up
+        public final int delayTicks; //ticks to wait before firing
+        public final float aimX; //a point to pass to GameWorld.fire for this angle
+        public final float aimY;
+        public final boolean hitsTarget; //false if no candidate hit an unbroken target piece
+        public final int evaluated; //candidates simulated before the budget ran out
+
+        Shot(float angle, int delayTicks, float aimX, float aimY, boolean hitsTarget, int evaluated) {
+            this.angle = angle;
+            this.delayTicks = delayTicks;
+            this.aimX = aimX;
+            this.aimY = aimY;
+            this.hitsTarget = hitsTarget;
+            this.evaluated = evaluated;
+        }
+    }
+
+    //searches angles firing angles by delays firing times, in pool or on the caller if pool is null
+    public AutoAimSolver(ForkJoinPool pool, int angles, int delays) {
+        if (angles < 1 || delays < 1)
+            throw new IllegalArgumentException("need at least one angle and one delay: " + angles + ", " + delays);
+        this.pool = pool;
+        this.angles = angles;
+        this.delays = delays;
+        scores = new float[angles * delays];
+        directionX = new float[angles];
+        directionY = new float[angles];
+        for (int i = 0; i < angles; ++i) {
+            double angle = angleOf(i);
+            directionX[i] = (float) Math.sin(angle);
+            directionY[i] = (float) -Math.cos(angle);
+        }
+    }
+
+    public int getCandidateCount() {
+        return scores.length;
+    }
+
+    //finds the best shot from the world's current state, stepping tickSeconds at a time as the
+    //game does. Candidates are tried soonest first, any not started within budgetNanos are skipped.
+    public Shot solve(GameWorld world, double tickSeconds, long budgetNanos) {
+        solveStart = System.nanoTime();
+        this.budgetNanos = budgetNanos;
+        this.tickSeconds = tickSeconds;
+        start.copyFrom(world);
+        start.getCannonballs().clear(); //balls in flight can't get in the way of a new one
+        start.setRapidFire(false);
+        ++solveCount;
+
+        if (pool != null)
+            pool.invoke(new Search(0, scores.length));
+        else
+            evaluate(0, scores.length);
+
+        int best = -1;
+        int evaluated = 0;
+        for (int i = 0; i < scores.length; ++i) {
+            if (scores[i] == NOT_EVALUATED)
+                continue;
+            ++evaluated;
+            if (best < 0 || scores[i] > scores[best])
+                best = i;
+        }
+        if (best < 0)
+            return new Shot(angleOf(0), 0, aimX(0), aimY(0), false, 0);
+
+        int angle = best % angles;
+        return new Shot(angleOf(angle), best / angles, aimX(angle), aimY(angle), scores[best] >= HIT_SCORE / 2, evaluated);
+    }
+
+    //scores candidates from up to to, candidate i fires at angle i % angles after i / angles ticks
+    private void evaluate(int from, int to) {
+        Evaluator evaluator = evaluators.get();
+        for (int i = from; i < to; ++i)
+            scores[i] = System.nanoTime() - solveStart < budgetNanos ? evaluator.score(i / angles, i % angles) : NOT_EVALUATED;
+    }
+
+    private float angleOf(int angleIndex) {
+        return angles == 1 ? (MIN_ANGLE + MAX_ANGLE) / 2 : MIN_ANGLE + (MAX_ANGLE - MIN_ANGLE) * angleIndex / (angles - 1);
+    }
+
+    //a point a screen's width from the cannon along the given candidate angle
+    private float aimX(int angleIndex) {
+        return start.getWidth() * directionX[angleIndex];
+    }
+
+    private float aimY(int angleIndex) {
+        return start.getCannonY(0) + start.getWidth() * directionY[angleIndex];
+    }
+
+    //splits the candidates in halves until they are few enough to evaluate
+    private class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L; //never serialized, keeps -Xlint quiet
+        private final int from;
+        private final int to;
+
+        Search(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_CANDIDATES) {
+                evaluate(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Search(from, middle), new Search(middle, to));
+        }
+    }
+
+    //one thread's worlds for playing out candidates, and what happened to the shot
+    private class Evaluator implements GameWorld.Listener {
+        private final GameWorld delayed = new GameWorld(1); //the start world after delayedTicks
+        private final GameWorld shot = new GameWorld(1);
+        private int solveCount = -1; //the solve delayed was copied for
+        private boolean targetHit;
+        private int blockerHits;
+
+        //plays the candidate out until its ball is gone and scores it
+        float score(int delayTicks, int angleIndex) {
+            //candidates with the same delay share the world at the moment of firing
+            long fireTick = start.getTick() + delayTicks;
+            if (solveCount != AutoAimSolver.this.solveCount || delayed.getTick() > fireTick) {
+                delayed.copyFrom(start);
+                solveCount = AutoAimSolver.this.solveCount;
+            }
+            while (delayed.getTick() < fireTick && !delayed.isGameOver())
+                delayed.step(tickSeconds);
+            if (delayed.isGameOver())
+                return -delayTicks * TICK_COST - HIT_SCORE;
+
+            shot.copyFrom(delayed);
+            shot.setListener(this);
+            targetHit = false;
+            blockerHits = 0;
+            shot.fire(aimX(angleIndex), aimY(angleIndex));
+            int flightTicks = 0;
+            while (!targetHit && shot.getCannonballs().liveCount() > 0 && !shot.isGameOver() &&
+                    flightTicks < MAX_FLIGHT_TICKS) {
+                shot.step(tickSeconds);
+                ++flightTicks;
+            }
+            shot.setListener(null);
+
+            float score = -(delayTicks + flightTicks) * TICK_COST - blockerHits * BLOCKER_COST;
+            return targetHit ? HIT_SCORE + score : score;
+        }
+
+        @Override
+        public void onCannonFired() {
+        }
+
+        @Override
+        public void onBlockerHit() {
+            ++blockerHits;
+        }
+
+        @Override
+        public void onTargetHit(int section) {
+            targetHit = true;
+        }
+
+        @Override
+        public void onGameOver(boolean won) {
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//plays many games without a screen on every core, by a scripted or an auto-aiming player, and
+//streams one record per game to CSV or JSON lines as the games finish; for tuning GameRules.
+//Each game has its own seed, so a game's record is the same whichever worker played it.
+public class BatchSimulator {
+    public static final int SCRIPTED = 0; //fires at random points at random times
+    public static final int AUTO_AIM = 1; //fires the best shot AutoAimSolver finds
+
+    //the auto-aiming player's search, smaller than the app's since every core is already busy
+    private static final int AUTO_AIM_ANGLES = 48;
+    private static final int AUTO_AIM_DELAYS = 12;
+    private static final int AUTO_AIM_RETRY_TICKS = 6; //wait after a search that found no hit
+
+    private final int threads;
+    private final double tickSeconds;
+    private final float width;
+    private final float height;
+    private Level level; //null for the default level of setSize
+
+    //plays in worlds of the given size, laid out the way CannonView does with a width of 1
+    public BatchSimulator(int threads, double tickSeconds, float width, float height) {
+        if (threads < 1)
+            throw new IllegalArgumentException("need at least one thread: " + threads);
+        if (!(tickSeconds > 0))
+            throw new IllegalArgumentException("tick length must be positive: " + tickSeconds);
+        this.threads = threads;
+        this.tickSeconds = tickSeconds;
+        this.width = width;
+        this.height = height;
+    }
+
+    //plays every game on the given level instead of the default one
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    //decides what to do before each tick of a game
+    public interface Player {
+        void beforeTick(GameWorld world, double tickSeconds);
+    }
+
+    //totals over the games played by one set of rules
+    public static class Summary {
+        public final GameRules rules;
+        private final AtomicInteger games = new AtomicInteger();
+        private final AtomicInteger wins = new AtomicInteger();
+        private final AtomicLong shots = new AtomicLong();
+        private final AtomicLong ticks = new AtomicLong();
+
+        Summary(GameRules rules) {
+            this.rules = rules;
+        }
+
+        void add(ReplayEngine.Result result) {
+            games.incrementAndGet();
+            if (result.won)
+                wins.incrementAndGet();
+            shots.addAndGet(result.shotsFired);
+            ticks.addAndGet(result.ticks);
+        }
+
+        public int getGames() {
+            return games.get();
+        }
+
+        public int getWins() {
+            return wins.get();
+        }
+
+        public double getMeanShots() {
+            return games.get() == 0 ? 0 : (double) shots.get() / games.get();
+        }
+
+        public long getTicks() {
+            return ticks.get();
+        }
+
+        @Override
+        public String toString() {
+            return rules + ": won " + wins + " of " + games + ", " + String.format("%.2f", getMeanShots()) +
+                    " shots per game";
+        }
+    }
+
+    //plays gamesPerRules games with each of the rules, writing each game's record to out as soon as
+    //it ends; out may be null. Game i plays rules i / gamesPerRules with a seed derived from seed and i.
+    public Summary[] run(List<GameRules> rules, final int gamesPerRules, final int player, final long seed,
+                         final RecordWriter out) throws IOException, InterruptedException {
+        if (player != SCRIPTED && player != AUTO_AIM)
+            throw new IllegalArgumentException("unknown player " + player);
+        final GameRules[] allRules = rules.toArray(new GameRules[rules.size()]);
+        final Summary[] summaries = new Summary[allRules.length];
+        for (int i = 0; i < allRules.length; ++i)
+            summaries[i] = new Summary(allRules[i]);
+        if (level != null)
+            level.layoutFor(width, height); //fill the level's layout cache before the workers read it
+
+        final int games = allRules.length * gamesPerRules;
+        final AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> workers = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; ++t) {
+                workers.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        //one world and solver per worker, reused for every game it plays
+                        GameWorld world = new GameWorld();
+                        AutoAimSolver solver = player == AUTO_AIM ?
+                                new AutoAimSolver(null, AUTO_AIM_ANGLES, AUTO_AIM_DELAYS) : null;
+                        for (int game; (game = nextGame.getAndIncrement()) < games; ) {
+                            int rulesIndex = game / gamesPerRules;
+                            long gameSeed = seed ^ (game * 0x9E3779B97F4A7C15L);
+                            Player gamePlayer = solver != null ? new AutoAimPlayer(solver, gameSeed) :
+                                    new ScriptedPlayer(gameSeed);
+                            ReplayEngine.Result result = play(world, allRules[rulesIndex], gamePlayer);
+                            summaries[rulesIndex].add(result);
+                            if (out != null)
+                                out.write(game, gameSeed, allRules[rulesIndex], result, maxTargetPieces(world));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (out != null)
+            out.flush();
+        return summaries;
+    }
+
+    //plays one game to the end in the given world
+    ReplayEngine.Result play(GameWorld world, GameRules rules, Player player) {
+        ReplayEngine.Recorder recorder = new ReplayEngine.Recorder();
+        world.setListener(recorder);
+        world.setRules(rules);
+        world.setSize(width, height);
+        if (level != null)
+            level.applyTo(world);
+        world.setRapidFire(false);
+        world.newGame();
+        while (!world.isGameOver()) {
+            player.beforeTick(world, tickSeconds);
+            world.step(tickSeconds);
+        }
+        world.setListener(null);
+        return recorder.result(world);
+    }
+
+    private static int maxTargetPieces(GameWorld world) {
+        int pieces = 0;
+        for (int i = 0; i < world.getLineCount(); ++i) {
+            Line line = world.getLine(i);
+            if (line.isTarget())
+                pieces = Math.max(pieces, line.getPieces());
+        }
+        return pieces;
+    }
+
+    //waits a random number of ticks after each shot lands, then fires at a random point ahead of the cannon
+    static class ScriptedPlayer implements Player {
+        private final Random random;
+        private long nextShotTick;
+
+        ScriptedPlayer(long seed) {
+            random = new Random(seed);
+        }
+
+        @Override
+        public void beforeTick(GameWorld world, double tickSeconds) {
+            if (world.isCannonballOnScreen() || world.getTick() < nextShotTick)
+                return;
+            float x = world.getWidth() * (0.5f + 0.5f * random.nextFloat());
+            float y = world.getHeight() * random.nextFloat();
+            world.fire(x, y);
+            nextShotTick = world.getTick() + 5 + random.nextInt(40);
+        }
+    }
+
+    //the app's AutoPlayer without the journal: searches for a hit whenever no ball is flying and
+    //fires it at the tick the search picked, or a random shot if there is none
+    static class AutoAimPlayer implements Player {
+        private final AutoAimSolver solver;
+        private final Random random;
+        private boolean shotPending;
+        private long fireTick;
+        private float aimX;
+        private float aimY;
+
+        AutoAimPlayer(AutoAimSolver solver, long seed) {
+            this.solver = solver;
+            random = new Random(seed);
+        }
+
+        @Override
+        public void beforeTick(GameWorld world, double tickSeconds) {
+            if (!shotPending) {
+                if (world.isCannonballOnScreen() || world.getTick() < fireTick)
+                    return;
+                AutoAimSolver.Shot shot = solver.solve(world, tickSeconds, Long.MAX_VALUE);
+                if (shot.hitsTarget) {
+                    fireTick = world.getTick() + shot.delayTicks;
+                    aimX = shot.aimX;
+                    aimY = shot.aimY;
+                } else {
+                    fireTick = world.getTick() + AUTO_AIM_RETRY_TICKS;
+                    aimX = world.getWidth();
+                    aimY = world.getHeight() * random.nextFloat();
+                }
+                shotPending = true;
+                world.aim(aimX, aimY);
+            }
+            if (world.getTick() >= fireTick) {
+                world.fire(aimX, aimY);
+                shotPending = false;
+            }
+        }
+    }
+
+    //writes one record per game, safe to call from every worker
+    public abstract static class RecordWriter {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder();
+
+        RecordWriter(Writer out) {
+            this.out = out;
+        }
+
+        //comma separated values with a header row, the hits per target section joined by semicolons
+        public static RecordWriter csv(Writer out) {
+            return new RecordWriter(out) {
+                private boolean headerWritten;
+
+                @Override
+                void format(StringBuilder line, int game, long seed, GameRules rules, ReplayEngine.Result result,
+                            int blockerHits, int[] sectionHits) {
+                    if (!headerWritten) {
+                        line.append("game,seed,missPenalty,hitReward,duration,targetPieces,ballSpeed,blockerSpeed,")
+                                .append("targetSpeed,won,shots,time,ticks,blockerHits,sectionHits\n");
+                        headerWritten = true;
+                    }
+                    line.append(game).append(',').append(seed).append(',').append(rules.getMissPenalty()).append(',')
+                            .append(rules.getHitReward()).append(',').append(rules.getGameDuration()).append(',')
+                            .append(rules.getTargetPieces()).append(',').append(rules.getCannonballSpeed()).append(',')
+                            .append(rules.getBlockerSpeed()).append(',').append(rules.getTargetSpeed()).append(',')
+                            .append(result.won).append(',').append(result.shotsFired).append(',')
+                            .append(result.totalTimeElapsed).append(',').append(result.ticks).append(',')
+                            .append(blockerHits).append(',');
+                    for (int i = 0; i < sectionHits.length; ++i)
+                        line.append(i == 0 ? "" : ";").append(sectionHits[i]);
+                    line.append('\n');
+                }
+            };
+        }
+
+        //one JSON object per line
+        public static RecordWriter jsonl(Writer out) {
+            return new RecordWriter(out) {
+                @Override
+                void format(StringBuilder line, int game, long seed, GameRules rules, ReplayEngine.Result result,
+                            int blockerHits, int[] sectionHits) {
+                    line.append("{\"game\":").append(game).append(",\"seed\":").append(seed)
+                            .append(",\"missPenalty\":").append(rules.getMissPenalty())
+                            .append(",\"hitReward\":").append(rules.getHitReward())
+                            .append(",\"duration\":").append(rules.getGameDuration())
+                            .append(",\"targetPieces\":").append(rules.getTargetPieces())
+                            .append(",\"ballSpeed\":").append(rules.getCannonballSpeed())
+                            .append(",\"blockerSpeed\":").append(rules.getBlockerSpeed())
+                            .append(",\"targetSpeed\":").append(rules.getTargetSpeed())
+                            .append(",\"won\":").append(result.won).append(",\"shots\":").append(result.shotsFired)
+                            .append(",\"time\":").append(result.totalTimeElapsed).append(",\"ticks\":").append(result.ticks)
+                            .append(",\"blockerHits\":").append(blockerHits).append(",\"sectionHits\":[");
+                    for (int i = 0; i < sectionHits.length; ++i)
+                        line.append(i == 0 ? "" : ",").append(sectionHits[i]);
+                    line.append("]}\n");
+                }
+            };
+        }
+
+        abstract void format(StringBuilder line, int game, long seed, GameRules rules, ReplayEngine.Result result,
+                             int blockerHits, int[] sectionHits);
+
+        synchronized void write(int game, long seed, GameRules rules, ReplayEngine.Result result, int sections)
+                throws IOException {
+            int blockerHits = 0;
+            int[] sectionHits = new int[sections];
+            for (int hit : result.getHits()) {
+                if (hit == ReplayEngine.BLOCKER_HIT)
+                    ++blockerHits;
+                else if (hit < sections)
+                    ++sectionHits[hit];
+            }
+            line.setLength(0);
+            format(line, game, seed, rules, result, blockerHits, sectionHits);
+            out.append(line);
+        }
+
+        synchronized void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    //runs a batch from the command line, e.g.
+    //  BatchSimulator --games 5000 --player auto --miss-penalty 1,2,3 --out results.csv
+    //every rule option takes a comma separated list and each combination is played --games times
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int player = SCRIPTED;
+        long seed = 1;
+        int tickRate = 60;
+        float height = 16 / 9f;
+        String outPath = null;
+        String levelsPath = null;
+        int levelIndex = 0;
+        List<GameRules> rules = new ArrayList<GameRules>();
+        rules.add(GameRules.DEFAULT);
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                String option = args[i];
+                String value = args[i + 1];
+                if (option.equals("--games"))
+                    games = Integer.parseInt(value);
+                else if (option.equals("--threads"))
+                    threads = Integer.parseInt(value);
+                else if (option.equals("--player"))
+                    player = parsePlayer(value);
+                else if (option.equals("--seed"))
+                    seed = Long.parseLong(value);
+                else if (option.equals("--tick-rate"))
+                    tickRate = Integer.parseInt(value);
+                else if (option.equals("--aspect"))
+                    height = Float.parseFloat(value);
+                else if (option.equals("--out"))
+                    outPath = value;
+                else if (option.equals("--levels"))
+                    levelsPath = value;
+                else if (option.equals("--level"))
+                    levelIndex = Integer.parseInt(value);
+                else
+                    rules = sweep(rules, option, value.split(","));
+            }
+            if (games < 1 || tickRate < 1)
+                throw new IllegalArgumentException("games and tick rate must be positive");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: BatchSimulator [--games n] [--threads n] [--player scripted|auto] [--seed n]\n" +
+                    "    [--tick-rate hz] [--aspect height/width] [--levels pack.lvl --level i] [--out file.csv|file.jsonl]\n" +
+                    "    [--miss-penalty s,..] [--hit-reward s,..] [--duration s,..] [--target-pieces n,..]\n" +
+                    "    [--ball-speed w/s,..] [--blocker-speed h/s,..] [--target-speed h/s,..]");
+            System.exit(2);
+            return;
+        }
+
+        BatchSimulator simulator = new BatchSimulator(threads, 1.0 / tickRate, 1, height);
+        if (levelsPath != null)
+            simulator.setLevel(readLevel(levelsPath, levelIndex));
+
+        Writer writer = new BufferedWriter(outPath == null ? new OutputStreamWriter(System.out, "UTF-8") :
+                new OutputStreamWriter(new FileOutputStream(outPath), "UTF-8"));
+        RecordWriter out = outPath != null && outPath.endsWith(".jsonl") ?
+                RecordWriter.jsonl(writer) : RecordWriter.csv(writer);
+        long start = System.nanoTime();
+        Summary[] summaries;
+        try {
+            summaries = simulator.run(rules, games, player, seed, out);
+        } finally {
+            writer.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Summary summary : summaries)
+            System.err.println(summary);
+        System.err.println(String.format("%d games in %.2f s on %d threads", games * summaries.length, seconds, threads));
+    }
+
+    private static int parsePlayer(String name) {
+        if (name.equals("scripted"))
+            return SCRIPTED;
+        if (name.equals("auto"))
+            return AUTO_AIM;
+        throw new IllegalArgumentException("unknown player " + name);
+    }
+
+    //every rules in the list with each of the values for the option
+    private static List<GameRules> sweep(List<GameRules> rules, String option, String[] values) {
+        List<GameRules> swept = new ArrayList<GameRules>();
+        for (GameRules base : rules) {
+            for (String value : values) {
+                if (option.equals("--miss-penalty"))
+                    swept.add(base.withMissPenalty(Double.parseDouble(value)));
+                else if (option.equals("--hit-reward"))
+                    swept.add(base.withHitReward(Double.parseDouble(value)));
+                else if (option.equals("--duration"))
+                    swept.add(base.withGameDuration(Double.parseDouble(value)));
+                else if (option.equals("--target-pieces"))
+                    swept.add(base.withTargetPieces(Integer.parseInt(value)));
+                else if (option.equals("--ball-speed"))
+                    swept.add(base.withCannonballSpeed(Float.parseFloat(value)));
+                else if (option.equals("--blocker-speed"))
+                    swept.add(base.withBlockerSpeed(Float.parseFloat(value)));
+                else if (option.equals("--target-speed"))
+                    swept.add(base.withTargetSpeed(Float.parseFloat(value)));
+                else
+                    throw new IllegalArgumentException("unknown option " + option);
+            }
+        }
+        return swept;
+    }
+
+    private static Level readLevel(String path, int index) throws IOException {
+        FileInputStream in = new FileInputStream(path);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            LevelPack pack = new LevelPack(bytes);
+            return pack.getLevel(index);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.nabesh.cannongameapp.core;
+
+//a fixed-capacity pool of cannonballs stored as parallel primitive arrays,
+//dead slots are recycled through a free list so nothing is allocated after construction
+public class CannonballPool {
+    private final float[] x;
+    private final float[] y;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private final float[] previousX; //position at the previous tick, for interpolated drawing
+    private final float[] previousY;
+    private final boolean[] alive;
+
+    private final int[] freeList; //stack of unused slots, lowest slot on top
+    private int freeCount;
+    private int highWater; //no live ball is at or above this slot
+    private int liveCount;
+
+    public CannonballPool(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        previousX = new float[capacity];
+        previousY = new float[capacity];
+        alive = new boolean[capacity];
+        freeList = new int[capacity];
+        clear();
+    }
+
+    //removes every ball
+    public void clear() {
+        int capacity = alive.length;
+        for (int i = 0; i < capacity; ++i) {
+            alive[i] = false;
+            freeList[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        highWater = 0;
+        liveCount = 0;
+    }
+
+    //makes this pool hold exactly the balls of another, which must fit below this pool's capacity
+    public void copyFrom(CannonballPool source) {
+        int n = source.highWater;
+        int capacity = alive.length;
+        if (n > capacity)
+            throw new IllegalArgumentException("pool of " + capacity + " cannot hold slot " + (n - 1));
+        System.arraycopy(source.x, 0, x, 0, n);
+        System.arraycopy(source.y, 0, y, 0, n);
+        System.arraycopy(source.velocityX, 0, velocityX, 0, n);
+        System.arraycopy(source.velocityY, 0, velocityY, 0, n);
+        System.arraycopy(source.previousX, 0, previousX, 0, n);
+        System.arraycopy(source.previousY, 0, previousY, 0, n);
+        System.arraycopy(source.alive, 0, alive, 0, n);
+
+        //rebuild the free list with the lowest slot on top
+        freeCount = 0;
+        for (int i = capacity - 1; i >= 0; --i) {
+            if (i >= n)
+                alive[i] = false;
+            if (!alive[i])
+                freeList[freeCount++] = i;
+        }
+        highWater = n;
+        liveCount = source.liveCount;
+    }
+
+    //adds a ball and returns its slot, or -1 if the pool is full
+    public int spawn(float startX, float startY, float startVelocityX, float startVelocityY) {
+        if (freeCount == 0)
+            return -1;
+        int i = freeList[--freeCount];
+        x[i] = previousX[i] = startX;
+        y[i] = previousY[i] = startY;
+        velocityX[i] = startVelocityX;
+        velocityY[i] = startVelocityY;
+        alive[i] = true;
+        ++liveCount;
+        if (i >= highWater)
+            highWater = i + 1;
+        return i;
+    }
+
+    //removes the ball in slot i
+    public void kill(int i) {
+        if (!alive[i])
+            return;
+        alive[i] = false;
+        freeList[freeCount++] = i;
+        --liveCount;
+        while (highWater > 0 && !alive[highWater - 1])
+            --highWater;
+    }
+
+    //moves every live ball by its velocity over interval seconds
+    public void integrate(float interval) {
+        final float[] x = this.x, y = this.y;
+        final float[] velocityX = this.velocityX, velocityY = this.velocityY;
+        final boolean[] alive = this.alive;
+        for (int i = 0, n = highWater; i < n; ++i) {
+            previousX[i] = x[i];
+            previousY[i] = y[i];
+            if (alive[i]) {
+                x[i] += interval * velocityX[i];
+                y[i] += interval * velocityY[i];
+            }
+        }
+    }
+
+    public int capacity() {
+        return alive.length;
+    }
+
+    public int liveCount() {
+        return liveCount;
+    }
+
+    //slots at or above this index are all dead, loops can stop here
+    public int highWater() {
+        return highWater;
+    }
+
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getVelocityX(int i) {
+        return velocityX[i];
+    }
+
+    public float getVelocityY(int i) {
+        return velocityY[i];
+    }
+
+    public float getPreviousX(int i) {
+        return previousX[i];
+    }
+
+    public float getPreviousY(int i) {
+        return previousY[i];
+    }
+
+    //moves the ball in slot i without touching its previous position
+    public void set(int i, float newX, float newY, float newVelocityX, float newVelocityY) {
+        x[i] = newX;
+        y[i] = newY;
+        velocityX[i] = newVelocityX;
+        velocityY[i] = newVelocityY;
+    }
+}
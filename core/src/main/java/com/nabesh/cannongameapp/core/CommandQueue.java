@@ -0,0 +1,155 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//a lock-free single-producer/single-consumer queue of player commands, the UI
+//thread offers them and the simulation thread applies them to the world between ticks.
+//Aiming has its own slot where the newest point replaces the last, so however fast the
+//touch panel reports moves the world aims at most once per tick. The slot remembers how many
+//commands had been offered before it, so the drain applies it in its place among them.
+public class CommandQueue {
+    public static final int AIM = 0;
+    public static final int FIRE = 1;
+    public static final int TOGGLE_RAPID_FIRE = 2;
+
+    private final int[] types;
+    private final float[] xs;
+    private final float[] ys;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); //next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); //next slot to write, written by the producer
+    private long cachedHead; //the producer's last look at head
+
+    //the aim slot, written by the producer only; the version is odd while it is being written
+    private final AtomicLong aimVersion = new AtomicLong();
+    private volatile float aimX;
+    private volatile float aimY;
+    private volatile long aimAt; //commands offered before the aim
+    private long appliedAimVersion; //the consumer's, the last version it applied
+
+    //the aim being drained, the consumer's
+    private float takenX;
+    private float takenY;
+
+    //capacity is rounded up to a power of two
+    public CommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        types = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        mask = size - 1;
+    }
+
+    //adds a command, returns false if the queue is full; producer thread only
+    public boolean offer(int type, float x, float y) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask)
+                return false;
+        }
+        int i = (int) t & mask;
+        types[i] = type;
+        xs[i] = x;
+        ys[i] = y;
+        tail.lazySet(t + 1); //publishes the slot to the consumer
+        return true;
+    }
+
+    //aims at the given point on the next tick unless a newer point arrives first; producer thread only
+    public void offerAim(float x, float y) {
+        long version = aimVersion.get();
+        aimVersion.set(version + 1);
+        aimX = x;
+        aimY = y;
+        aimAt = tail.get();
+        aimVersion.set(version + 2);
+    }
+
+    //takes the aim if there is a new one and every command offered before it is below tail,
+    //returns where it goes among the commands or -1; consumer thread only
+    private long takeAim(long tail) {
+        long version;
+        float x;
+        float y;
+        long at;
+        do {
+            version = aimVersion.get();
+            x = aimX;
+            y = aimY;
+            at = aimAt;
+        } while ((version & 1) != 0 || aimVersion.get() != version); //the producer was writing it
+        if (version == appliedAimVersion || at > tail)
+            return -1; //nothing new, or commands before it are still on their way
+        appliedAimVersion = version;
+        takenX = x;
+        takenY = y;
+        return Math.max(at, head.get());
+    }
+
+    //applies every queued command to the world and returns how many there were; consumer thread only
+    public int drainTo(GameWorld world) {
+        return drainTo(world, null);
+    }
+
+    //the same, also recording each command in the journal if it isn't null
+    public int drainTo(GameWorld world, InputJournal journal) {
+        long h = head.get();
+        long t = tail.get(); //read before the aim, so an aim offered after these commands waits for them
+        long aimAt = takeAim(t);
+        for (long n = h; n <= t; ++n) {
+            if (n == aimAt) {
+                if (journal != null)
+                    journal.record(world.getTick(), AIM, takenX, takenY);
+                apply(world, AIM, takenX, takenY);
+            }
+            if (n == t)
+                break;
+            int i = (int) n & mask;
+            if (journal != null)
+                journal.record(world.getTick(), types[i], xs[i], ys[i]);
+            apply(world, types[i], xs[i], ys[i]);
+        }
+        head.lazySet(t); //hands the slots back to the producer
+        return (aimAt < 0 ? 0 : 1) + (int) (t - h);
+    }
+
+    //hands every queued command to a two player session instead, which sends them to the other player
+    //and applies them a few ticks later; consumer thread only
+    public int drainTo(LockstepSession session) {
+        long h = head.get();
+        long t = tail.get();
+        long aimAt = takeAim(t);
+        for (long n = h; n <= t; ++n) {
+            if (n == aimAt)
+                session.command(AIM, takenX, takenY);
+            if (n == t)
+                break;
+            int i = (int) n & mask;
+            session.command(types[i], xs[i], ys[i]);
+        }
+        head.lazySet(t);
+        return (aimAt < 0 ? 0 : 1) + (int) (t - h);
+    }
+
+    //carries out one command
+    public static void apply(GameWorld world, int type, float x, float y) {
+        switch (type) {
+            case AIM:
+                world.aim(x, y);
+                break;
+            case FIRE:
+                world.fire(x, y);
+                break;
+            case TOGGLE_RAPID_FIRE:
+                world.setRapidFire(!world.isRapidFire());
+                break;
+        }
+    }
+
+    //true if nothing is waiting; consumer thread only
+    public boolean isEmpty() {
+        return head.get() == tail.get() && aimVersion.get() == appliedAimVersion;
+    }
+}
@@ -0,0 +1,118 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+//per-frame timings of the game loop. The simulation thread records update times, the render
+//thread records the rest; any thread may read or dump them while the game runs.
+public class FrameStats {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final LatencyHistogram updateNanos = new LatencyHistogram();
+    private final LatencyHistogram drawNanos = new LatencyHistogram();
+    private final LatencyHistogram lockWaitNanos = new LatencyHistogram();
+    private final LatencyHistogram frameIntervalNanos = new LatencyHistogram();
+    private final LatencyHistogram allocations = new LatencyHistogram();
+
+    private final long jankThresholdNanos; //intervals longer than this mean a frame was dropped
+    private final AtomicLong jankCount = new AtomicLong();
+
+    //frames are expected every 1/refreshRate seconds, half a frame late counts as jank
+    public FrameStats(int refreshRate) {
+        if (refreshRate <= 0)
+            throw new IllegalArgumentException("refresh rate must be positive: " + refreshRate);
+        jankThresholdNanos = NANOS_PER_SECOND * 3 / (2 * refreshRate);
+    }
+
+    //one simulation tick
+    public void recordUpdate(long nanos) {
+        updateNanos.record(nanos);
+    }
+
+    //drawing one frame into a locked canvas
+    public void recordDraw(long nanos) {
+        drawNanos.record(nanos);
+    }
+
+    //locking and posting the canvas of one frame
+    public void recordLockWait(long nanos) {
+        lockWaitNanos.record(nanos);
+    }
+
+    //time since the previous frame reached the screen
+    public void recordFrameInterval(long nanos) {
+        frameIntervalNanos.record(nanos);
+        if (nanos > jankThresholdNanos)
+            jankCount.incrementAndGet();
+    }
+
+    //objects allocated while drawing one frame
+    public void recordAllocations(long count) {
+        allocations.record(count);
+    }
+
+    public LatencyHistogram getUpdateNanos() {
+        return updateNanos;
+    }
+
+    public LatencyHistogram getDrawNanos() {
+        return drawNanos;
+    }
+
+    public LatencyHistogram getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    public LatencyHistogram getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    public LatencyHistogram getAllocations() {
+        return allocations;
+    }
+
+    public long getJankThresholdNanos() {
+        return jankThresholdNanos;
+    }
+
+    //frames that arrived later than the jank threshold after the one before
+    public long getJankCount() {
+        return jankCount.get();
+    }
+
+    public void reset() {
+        updateNanos.reset();
+        drawNanos.reset();
+        lockWaitNanos.reset();
+        frameIntervalNanos.reset();
+        allocations.reset();
+        jankCount.set(0);
+    }
+
+    //a few lines of text with the count, p50/p95/p99 and max of every histogram and the jank count
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        appendTimes(builder, "update", updateNanos);
+        appendTimes(builder, "draw", drawNanos);
+        appendTimes(builder, "lock", lockWaitNanos);
+        appendTimes(builder, "frame", frameIntervalNanos);
+        builder.append(String.format(Locale.US, "alloc  n=%d p50=%d p95=%d p99=%d max=%d%n",
+                allocations.getCount(), allocations.getValueAtPercentile(50),
+                allocations.getValueAtPercentile(95), allocations.getValueAtPercentile(99),
+                allocations.getMax()));
+        builder.append("jank   ").append(getJankCount()).append(" of ")
+                .append(frameIntervalNanos.getCount()).append(" frames");
+        return builder.toString();
+    }
+
+    private static void appendTimes(StringBuilder builder, String name, LatencyHistogram histogram) {
+        builder.append(String.format(Locale.US, "%-6s n=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n",
+                name, histogram.getCount(), millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(95)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getMax())));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
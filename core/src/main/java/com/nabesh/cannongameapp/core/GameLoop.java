@@ -0,0 +1,163 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.concurrent.TimeUnit;
+
+//one long-lived thread running a loop body that can be paused, resumed and stopped any number
+//of times without creating another thread. A paused loop blocks on a monitor instead of spinning,
+//and the waits between passes end early when the loop is paused or stopped.
+public class GameLoop {
+    public static final int RUNNING = 0;
+    public static final int PAUSED = 1;
+    public static final int STOPPED = 2;
+
+    //the work done by the loop, every call is made on the loop's thread
+    public interface Body {
+        //called before the first pass after the loop starts or resumes
+        void onResume();
+
+        //one pass of the loop, returns how many nanoseconds to wait before the next
+        long runOnce();
+    }
+
+    private final Body body;
+    private final Thread thread;
+    private final Object lock = new Object();
+    private boolean started; //guarded by lock
+    private volatile int requested = PAUSED; //what the controlling threads asked for, written under lock
+    private volatile int state = PAUSED; //what the loop thread is doing, written under lock
+
+    public GameLoop(String name, Body body) {
+        this.body = body;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, name);
+    }
+
+    public void setPriority(int priority) {
+        thread.setPriority(priority);
+    }
+
+    //runs the body, starting the thread the first time
+    public void resume() {
+        synchronized (lock) {
+            if (requested == STOPPED)
+                throw new IllegalStateException("the loop has been stopped");
+            requested = RUNNING;
+            lock.notifyAll();
+            if (!started) {
+                started = true;
+                thread.start();
+            }
+        }
+    }
+
+    //asks the loop to stop running the body after the current pass, without waiting for it
+    public void pause() {
+        synchronized (lock) {
+            if (requested == RUNNING) {
+                requested = PAUSED;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    //waits until a loop that was asked to pause or stop is out of the body, returns false if that took
+    //longer than the timeout or the loop was resumed meanwhile. Called from the loop's own thread,
+    //which can't wait for itself, it only returns whether the loop will pause.
+    public boolean awaitPaused(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.currentThread() == thread)
+            return requested != RUNNING;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (requested != RUNNING && state == RUNNING) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return state != RUNNING;
+        }
+    }
+
+    //pauses and waits for the pass in progress, returns false on a timeout
+    public boolean pauseAndWait(long timeout, TimeUnit unit) throws InterruptedException {
+        pause();
+        return awaitPaused(timeout, unit);
+    }
+
+    //stops the loop for good and waits up to the timeout for the thread to end, interrupting it
+    //if it is still in a pass halfway through; returns whether the thread has ended
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (lock) {
+            requested = STOPPED;
+            lock.notifyAll();
+            if (!started) {
+                state = STOPPED;
+                return true;
+            }
+        }
+        if (Thread.currentThread() == thread)
+            return false;
+        long timeoutMillis = Math.max(1, unit.toMillis(timeout));
+        thread.join((timeoutMillis + 1) / 2);
+        if (thread.isAlive()) {
+            thread.interrupt();
+            thread.join(timeoutMillis / 2 + 1);
+        }
+        return !thread.isAlive();
+    }
+
+    //RUNNING, PAUSED or STOPPED, what the loop thread is doing right now
+    public int getState() {
+        return state;
+    }
+
+    //true while the body is asked to run
+    public boolean isRunning() {
+        return requested == RUNNING;
+    }
+
+    private void loop() {
+        try {
+            while (waitUntilRunning()) {
+                long waitNanos = body.runOnce();
+                if (waitNanos > 0) {
+                    synchronized (lock) {
+                        if (requested == RUNNING)
+                            TimeUnit.NANOSECONDS.timedWait(lock, waitNanos);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            //shutdown gave up waiting for the pass to end
+        } finally {
+            synchronized (lock) {
+                state = STOPPED;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    //blocks while paused, telling the body when it carries on; returns false once the loop is stopped
+    private boolean waitUntilRunning() throws InterruptedException {
+        if (requested == RUNNING && state == RUNNING)
+            return true; //still running, no need to lock
+        synchronized (lock) {
+            while (requested == PAUSED) {
+                if (state != PAUSED) {
+                    state = PAUSED;
+                    lock.notifyAll();
+                }
+                lock.wait();
+            }
+            if (requested == STOPPED)
+                return false;
+            state = RUNNING;
+        }
+        body.onResume();
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.nabesh.cannongameapp.core;
+
+//the tunable numbers of the game play. Speeds are in screen widths (cannonball) or heights
+//(blocker and target) per second and, like the target pieces, shape the default level laid out
+//by GameWorld.setSize; levels from a pack bring their own lines and time.
+public final class GameRules {
+    public static final GameRules DEFAULT = new GameRules(GameWorld.MISS_PENALTY, GameWorld.HIT_REWARD,
+            GameWorld.GAME_DURATION, GameWorld.TARGET_PIECES, 1.5f, 0.5f, 0.25f);
+
+    private final double missPenalty; //seconds taken off the clock when a blocker is hit
+    private final double hitReward; //seconds added for each target piece hit
+    private final double gameDuration;
+    private final int targetPieces;
+    private final float cannonballSpeed;
+    private final float blockerSpeed;
+    private final float targetSpeed;
+
+    public GameRules(double missPenalty, double hitReward, double gameDuration, int targetPieces,
+                     float cannonballSpeed, float blockerSpeed, float targetSpeed) {
+        if (!(gameDuration > 0))
+            throw new IllegalArgumentException("game duration must be positive: " + gameDuration);
+        if (targetPieces < 1 || targetPieces > Line.MAX_PIECES)
+            throw new IllegalArgumentException("target pieces must be between 1 and " + Line.MAX_PIECES + ": " + targetPieces);
+        if (!(cannonballSpeed > 0))
+            throw new IllegalArgumentException("cannonball speed must be positive: " + cannonballSpeed);
+        this.missPenalty = missPenalty;
+        this.hitReward = hitReward;
+        this.gameDuration = gameDuration;
+        this.targetPieces = targetPieces;
+        this.cannonballSpeed = cannonballSpeed;
+        this.blockerSpeed = blockerSpeed;
+        this.targetSpeed = targetSpeed;
+    }
+
+    public GameRules withMissPenalty(double seconds) {
+        return new GameRules(seconds, hitReward, gameDuration, targetPieces, cannonballSpeed, blockerSpeed, targetSpeed);
+    }
+
+    public GameRules withHitReward(double seconds) {
+        return new GameRules(missPenalty, seconds, gameDuration, targetPieces, cannonballSpeed, blockerSpeed, targetSpeed);
+    }
+
+    public GameRules withGameDuration(double seconds) {
+        return new GameRules(missPenalty, hitReward, seconds, targetPieces, cannonballSpeed, blockerSpeed, targetSpeed);
+    }
+
+    public GameRules withTargetPieces(int pieces) {
+        return new GameRules(missPenalty, hitReward, gameDuration, pieces, cannonballSpeed, blockerSpeed, targetSpeed);
+    }
+
+    public GameRules withCannonballSpeed(float widthsPerSecond) {
+        return new GameRules(missPenalty, hitReward, gameDuration, targetPieces, widthsPerSecond, blockerSpeed, targetSpeed);
+    }
+
+    public GameRules withBlockerSpeed(float heightsPerSecond) {
+        return new GameRules(missPenalty, hitReward, gameDuration, targetPieces, cannonballSpeed, heightsPerSecond, targetSpeed);
+    }
+
+    public GameRules withTargetSpeed(float heightsPerSecond) {
+        return new GameRules(missPenalty, hitReward, gameDuration, targetPieces, cannonballSpeed, blockerSpeed, heightsPerSecond);
+    }
+
+    public double getMissPenalty() {
+        return missPenalty;
+    }
+
+    public double getHitReward() {
+        return hitReward;
+    }
+
+    public double getGameDuration() {
+        return gameDuration;
+    }
+
+    public int getTargetPieces() {
+        return targetPieces;
+    }
+
+    public float getCannonballSpeed() {
+        return cannonballSpeed;
+    }
+
+    public float getBlockerSpeed() {
+        return blockerSpeed;
+    }
+
+    public float getTargetSpeed() {
+        return targetSpeed;
+    }
+
+    @Override
+    public String toString() {
+        return "missPenalty=" + missPenalty + " hitReward=" + hitReward + " duration=" + gameDuration +
+                " pieces=" + targetPieces + " ballSpeed=" + cannonballSpeed + " blockerSpeed=" + blockerSpeed +
+                " targetSpeed=" + targetSpeed;
+    }
+}
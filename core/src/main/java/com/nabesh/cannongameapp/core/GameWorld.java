@@ -0,0 +1,767 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+//holds the whole state of a cannon game and advances it in time,
+//it has no Android dependencies and allocates nothing once constructed
+public class GameWorld {
+
+    //constants for the game play, the defaults of GameRules
+    public static final int TARGET_PIECES = 7;
+    public static final int MISS_PENALTY = 2;
+    public static final int HIT_REWARD = 3;
+    public static final double GAME_DURATION = 10; //seconds on the clock at the start
+    public static final int DEFAULT_CANNONBALL_CAPACITY = 512;
+    public static final int MAX_LINES = 64; //most blockers and targets in one world
+    public static final int MAX_PLAYERS = 2; //cannons down the left edge, one per player
+    private static final int MAX_HITS_PER_TICK = 8; //collisions resolved for one ball in one tick
+
+    //particles in each burst, their speeds are fractions of the cannonball's
+    private static final int TARGET_SPARKS = 96;
+    private static final int BLOCKER_SPARKS = 32;
+    private static final int MUZZLE_SPARKS = 24;
+
+    //the binary state written by writeState, positions are stored as fractions of the screen size
+    private static final int STATE_MAGIC = 0x43575354; //"CWST"
+    private static final int STATE_VERSION = 1;
+    private static final int STATE_HEADER_BYTES = 4 + 1 + 8 + 1 + 8 * 3 + 4 + 4 * 2 + 1;
+    private static final int STATE_LINE_BYTES = 1 + 1 + 4 + 4 * 12;
+    private static final int STATE_BALL_BYTES = 4 * 4;
+
+    //receives the events that happen while stepping the world
+    public interface Listener {
+        void onCannonFired();
+
+        void onBlockerHit();
+
+        void onTargetHit(int section);
+
+        void onGameOver(boolean won);
+    }
+
+    private Listener listener;
+    private GameRules rules = GameRules.DEFAULT;
+    private ParticleSystem particles; //null unless someone draws them
+
+    //variables for the game loop and tracking statistics
+    private long tick; //steps taken since the game started
+    private boolean gameOver;
+    private double timeLeft;
+    private double gameDuration = GAME_DURATION; //seconds on the clock when a game starts
+    private int shotsFired;
+    private double totalTimeElapsed;
+
+    //the blockers and targets, and the grid indexing them for collision checks
+    private final Line[] lines = new Line[MAX_LINES];
+    private int lineCount;
+    private final UniformGrid grid = new UniformGrid(MAX_LINES);
+    private final int[] candidates = new int[MAX_LINES]; //scratch space for grid queries
+    private float lineTravel; //furthest any line moves during the current tick
+
+    private float lineWidth;
+    private int targetPieces; //pieces over all targets
+    private int targetPiecesHit;
+
+    //variables for the cannon and cannonballs
+    private final CannonballPool cannonballs;
+    private int maxLiveCannonballs = 1; //1 unless rapid fire is on
+    private int cannonballLimit; //most live cannonballs in rapid fire
+    private float cannonballRadius;
+    private float cannonballSpeed;
+    private float cannonBaseRadius;
+    private float cannonLength;
+    private int players = 1;
+    private final float[] cannonY = new float[MAX_PLAYERS]; //centre of each cannon on the left edge
+    private final float[] barrelEndX = new float[MAX_PLAYERS];
+    private final float[] barrelEndY = new float[MAX_PLAYERS];
+    private final float[] aimDirectionX = {1, 1}; //unit vector from the cannon's centre along the barrel
+    private final float[] aimDirectionY = new float[MAX_PLAYERS];
+    private float width;
+    private float height;
+
+    public GameWorld() {
+        this(DEFAULT_CANNONBALL_CAPACITY);
+    }
+
+    public GameWorld(int cannonballCapacity) {
+        cannonballs = new CannonballPool(cannonballCapacity);
+        cannonballLimit = cannonballCapacity;
+        for (int i = 0; i < MAX_LINES; ++i)
+            lines[i] = new Line();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    //plays by the given rules; the penalty and reward count from the next step, the rest from the next setSize
+    public void setRules(GameRules rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("rules must not be null");
+        this.rules = rules;
+    }
+
+    public GameRules getRules() {
+        return rules;
+    }
+
+    //sends bursts of particles into the given system as things are hit and fired, null for none.
+    //copyFrom doesn't copy them, they only matter to the screen.
+    public void setParticles(ParticleSystem particles) {
+        this.particles = particles;
+    }
+
+    public ParticleSystem getParticles() {
+        return particles;
+    }
+
+    //lays the world out for a screen of the given size with one blocker and one target. The size
+    //is in whatever units the caller uses: pixels, or 1 by the screen's aspect ratio so the game
+    //plays the same at every resolution and a single transform maps it onto the screen.
+    public void setSize(float w, float h) {
+        width = w;
+        height = h;
+
+        cannonBaseRadius = h / 18f;
+        cannonLength = w / 8f;
+
+        cannonballRadius = w / 36f;
+        cannonballSpeed = w * rules.getCannonballSpeed();
+
+        lineWidth = w / 24f;
+
+        layOutCannons();
+
+        grid.resize(width, height, gridCellSize());
+
+        clearLines();
+        gameDuration = rules.getGameDuration();
+        float blockerDistance = w * 5 / 8f;
+        addBlocker(blockerDistance, h / 8f, blockerDistance, h * 3 / 8f, 0, h * rules.getBlockerSpeed());
+        float targetDistance = w * 7 / 8f;
+        addTarget(targetDistance, h / 8f, targetDistance, h * 7 / 8f, 0, -h * rules.getTargetSpeed(),
+                rules.getTargetPieces());
+    }
+
+    //size the grid cells so a cannonball touches at most four of them
+    private float gridCellSize() {
+        return Math.max(cannonballRadius * 4, Math.max(width, height) / 16);
+    }
+
+    //makes this world an exact copy of another, apart from the listener. Nothing is allocated
+    //once this world has copied one of the same size; the source's cannonballs must fit in this pool.
+    public void copyFrom(GameWorld source) {
+        rules = source.rules;
+        tick = source.tick;
+        gameOver = source.gameOver;
+        timeLeft = source.timeLeft;
+        gameDuration = source.gameDuration;
+        shotsFired = source.shotsFired;
+        totalTimeElapsed = source.totalTimeElapsed;
+
+        lineWidth = source.lineWidth;
+        targetPieces = source.targetPieces;
+        targetPiecesHit = source.targetPiecesHit;
+
+        cannonballs.copyFrom(source.cannonballs);
+        maxLiveCannonballs = Math.min(source.maxLiveCannonballs, cannonballs.capacity());
+        cannonballLimit = Math.min(source.cannonballLimit, cannonballs.capacity());
+        cannonballRadius = source.cannonballRadius;
+        cannonballSpeed = source.cannonballSpeed;
+        cannonBaseRadius = source.cannonBaseRadius;
+        cannonLength = source.cannonLength;
+        players = source.players;
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            cannonY[p] = source.cannonY[p];
+            barrelEndX[p] = source.barrelEndX[p];
+            barrelEndY[p] = source.barrelEndY[p];
+            aimDirectionX[p] = source.aimDirectionX[p];
+            aimDirectionY[p] = source.aimDirectionY[p];
+        }
+        width = source.width;
+        height = source.height;
+
+        //the same grid as last time keeps its cells, the lines only move where they changed
+        float cellSize = gridCellSize();
+        if (grid.isLaidOver(width, height, cellSize)) {
+            for (int i = source.lineCount; i < lineCount; ++i)
+                grid.remove(i);
+        } else {
+            grid.resize(width, height, cellSize);
+        }
+        lineCount = source.lineCount;
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = lines[i];
+            line.copyFrom(source.lines[i]);
+            grid.update(i, line.minX(), line.minY(), line.maxX(), line.maxY());
+        }
+    }
+
+    //bytes writeState may need for a world with the given cannonball capacity
+    public static int maxStateBytes(int cannonballCapacity) {
+        return STATE_HEADER_BYTES + MAX_LINES * STATE_LINE_BYTES + 4 + cannonballCapacity * STATE_BALL_BYTES;
+    }
+
+    //writes everything needed to carry on this game: the clock, the shot count, the lines with
+    //their hit pieces and the live cannonballs. Positions and velocities are written as fractions
+    //of the screen size so the state can be read back into a world of another size.
+    //Only one player games are written, a two player game can't carry on without the other player.
+    public void writeState(ByteBuffer out) {
+        if (players != 1)
+            throw new IllegalStateException("only one player games can be saved");
+        out.putInt(STATE_MAGIC);
+        out.put((byte) STATE_VERSION);
+        out.putLong(tick);
+        out.put((byte) ((gameOver ? 1 : 0) | (isRapidFire() ? 2 : 0)));
+        out.putDouble(timeLeft);
+        out.putDouble(gameDuration);
+        out.putDouble(totalTimeElapsed);
+        out.putInt(shotsFired);
+        out.putFloat(aimDirectionX[0]);
+        out.putFloat(aimDirectionY[0]);
+
+        out.put((byte) lineCount);
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = lines[i];
+            out.put((byte) line.type);
+            out.put((byte) line.pieces);
+            out.putInt(line.hitMask);
+            line.writeState(out, width, height);
+        }
+
+        out.putInt(cannonballs.liveCount());
+        for (int i = 0, n = cannonballs.highWater(); i < n; ++i) {
+            if (!cannonballs.isAlive(i))
+                continue;
+            out.putFloat(cannonballs.getX(i) / width);
+            out.putFloat(cannonballs.getY(i) / height);
+            out.putFloat(cannonballs.getVelocityX(i) / width);
+            out.putFloat(cannonballs.getVelocityY(i) / height);
+        }
+    }
+
+    //carries on the game written by writeState, scaled to this world's size which setSize must
+    //already have laid out. On an IOException the world is left part-way and needs a newGame().
+    public void readState(ByteBuffer in) throws IOException {
+        if (width == 0 || height == 0)
+            throw new IllegalStateException("the world has no size yet");
+        try {
+            if (in.getInt() != STATE_MAGIC)
+                throw new IOException("not a world state");
+            int version = in.get();
+            if (version != STATE_VERSION)
+                throw new IOException("unsupported world state version " + version);
+            long savedTick = in.getLong();
+            int flags = in.get();
+            double savedTimeLeft = in.getDouble();
+            double savedDuration = in.getDouble();
+            double savedElapsed = in.getDouble();
+            int savedShots = in.getInt();
+            float directionX = in.getFloat();
+            float directionY = in.getFloat();
+            if (savedTick < 0 || !(savedDuration > 0) || savedShots < 0)
+                throw new IOException("bad world state header");
+
+            int count = in.get();
+            if (count < 0 || count > MAX_LINES)
+                throw new IOException("bad line count " + count);
+            clearLines();
+            targetPieces = 0;
+            targetPiecesHit = 0;
+            for (int i = 0; i < count; ++i) {
+                int type = in.get();
+                int pieces = in.get();
+                int hitMask = in.getInt();
+                if ((type != Line.BLOCKER && type != Line.TARGET) || pieces < 1 || pieces > Line.MAX_PIECES)
+                    throw new IOException("bad line " + i);
+                Line line = lines[lineCount++];
+                line.readState(in, type, pieces, width, height);
+                line.hitMask = hitMask;
+                if (line.isTarget()) {
+                    targetPieces += pieces;
+                    targetPiecesHit += Integer.bitCount(hitMask);
+                }
+                grid.update(i, line.minX(), line.minY(), line.maxX(), line.maxY());
+            }
+
+            int balls = in.getInt();
+            if (balls < 0 || balls > cannonballs.capacity())
+                throw new IOException("bad cannonball count " + balls);
+            cannonballs.clear();
+            for (int i = 0; i < balls; ++i) {
+                float x = in.getFloat() * width;
+                float y = in.getFloat() * height;
+                cannonballs.spawn(x, y, in.getFloat() * width, in.getFloat() * height);
+            }
+
+            tick = savedTick;
+            gameOver = (flags & 1) != 0;
+            setRapidFire((flags & 2) != 0);
+            timeLeft = savedTimeLeft;
+            gameDuration = savedDuration;
+            totalTimeElapsed = savedElapsed;
+            shotsFired = savedShots;
+            setPlayers(1);
+            aimDirectionX[0] = directionX;
+            aimDirectionY[0] = directionY;
+            barrelEndX[0] = cannonLength * directionX;
+            barrelEndY[0] = cannonY[0] + cannonLength * directionY;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated world state");
+        }
+    }
+
+    //sets the seconds on the clock at the start of a game, takes effect at the next newGame()
+    public void setGameDuration(double seconds) {
+        if (!(seconds > 0))
+            throw new IllegalArgumentException("game duration must be positive: " + seconds);
+        gameDuration = seconds;
+    }
+
+    public double getGameDuration() {
+        return gameDuration;
+    }
+
+    //removes every blocker and target
+    public void clearLines() {
+        lineCount = 0;
+        grid.clear();
+    }
+
+    //adds a blocker that bounces cannonballs back, takes effect at the next newGame()
+    public Line addBlocker(float startX, float startY, float endX, float endY,
+                           float velocityX, float velocityY) {
+        return addLine(Line.BLOCKER, 1, startX, startY, endX, endY, velocityX, velocityY);
+    }
+
+    //adds a target split into the given number of pieces, takes effect at the next newGame()
+    public Line addTarget(float startX, float startY, float endX, float endY,
+                          float velocityX, float velocityY, int pieces) {
+        return addLine(Line.TARGET, pieces, startX, startY, endX, endY, velocityX, velocityY);
+    }
+
+    private Line addLine(int type, int pieces, float startX, float startY, float endX, float endY,
+                         float velocityX, float velocityY) {
+        if (lineCount == MAX_LINES)
+            throw new IllegalStateException("a world holds at most " + MAX_LINES + " lines");
+        Line line = lines[lineCount++];
+        line.define(type, pieces, startX, startY, endX, endY, velocityX, velocityY);
+        return line;
+    }
+
+    //reset all the game elements and start a new game
+    public void newGame() {
+        targetPieces = 0;
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = lines[i];
+            line.reset();
+            if (line.isTarget())
+                targetPieces += line.pieces;
+            grid.update(i, line.minX(), line.minY(), line.maxX(), line.maxY());
+        }
+
+        targetPiecesHit = 0;
+        tick = 0;
+        timeLeft = gameDuration;
+        cannonballs.clear();
+        shotsFired = 0;
+        totalTimeElapsed = 0.0;
+        gameOver = false;
+        if (particles != null)
+            particles.clear();
+    }
+
+    //advances the game by interval seconds
+    public void step(double interval) {
+        if (gameOver)
+            return;
+        ++tick;
+        if (particles != null)
+            particles.update((float) interval);
+
+        lineTravel = 0;
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = lines[i];
+            lineTravel = Math.max(lineTravel, (float) (interval * (Math.abs(line.velocityX) + Math.abs(line.velocityY))));
+        }
+
+        //update every cannonball's position and check it for collisions
+        cannonballs.integrate((float) interval);
+        for (int i = 0, n = cannonballs.highWater(); i < n; ++i) {
+            if (cannonballs.isAlive(i) && collideCannonball(i, (float) interval))
+                return; //the last target piece was hit
+        }
+
+        //update the blockers' and targets' positions
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = lines[i];
+            line.previousStartX = line.startX;
+            line.previousStartY = line.startY;
+            line.offset((float) (interval * line.velocityX), (float) (interval * line.velocityY));
+
+            //if the line hit a wall, reverse direction
+            float minX = line.minX(), minY = line.minY(), maxX = line.maxX(), maxY = line.maxY();
+            if (minY < 0 || maxY > height)
+                line.velocityY *= -1;
+            if (minX < 0 || maxX > width)
+                line.velocityX *= -1;
+
+            grid.update(i, minX, minY, maxX, maxY);
+        }
+        timeLeft -= interval;
+        totalTimeElapsed += interval;
+
+        //if the timer gets to zero
+        if (timeLeft <= 0) {
+            timeLeft = 0.0;
+            endGame(false);
+        }
+    }
+
+    //checks the cannonball in slot i against everything it passed during the last interval
+    //seconds, returns true if that won the game
+    private boolean collideCannonball(int i, float interval) {
+        float startX = cannonballs.getPreviousX(i);
+        float startY = cannonballs.getPreviousY(i);
+        float endX = cannonballs.getX(i);
+        float endY = cannonballs.getY(i);
+        float radius = cannonballRadius;
+
+        //find the lines near the path the ball took, allowing for their own motion
+        float margin = radius + lineTravel;
+        int count = grid.query(Math.min(startX, endX) - margin, Math.min(startY, endY) - margin,
+                Math.max(startX, endX) + margin, Math.max(startY, endY) + margin, candidates);
+
+        if (count == 0) {
+            //nothing to hit on the way, only check the walls
+            if (endX + radius > width || endX - radius < 0 || endY + radius > height || endY - radius < 0)
+                cannonballs.kill(i); //remove cannonball from the screen
+            return false;
+        }
+        return sweepCannonball(i, count, interval);
+    }
+
+    //moves the cannonball in slot i through the interval again from its previous position,
+    //resolving each collision with the candidate lines in the order they happen
+    private boolean sweepCannonball(int i, int count, float interval) {
+        float x = cannonballs.getPreviousX(i);
+        float y = cannonballs.getPreviousY(i);
+        float velocityX = cannonballs.getVelocityX(i);
+        float velocityY = cannonballs.getVelocityY(i);
+        float radius = cannonballRadius;
+        float elapsed = 0; //time into the interval
+        int passedLine = -1; //a line the ball just left or flew through, not checked again
+
+        for (int hits = 0; ; ++hits) {
+            float remaining = interval - elapsed;
+            if (hits == MAX_HITS_PER_TICK) {
+                x += velocityX * remaining;
+                y += velocityY * remaining;
+                break;
+            }
+
+            //earliest time the ball reaches a wall or a line, lines win ties
+            float earliest = SweptCollision.timeOfImpactWithWalls(x, y, velocityX, velocityY, radius,
+                    width, height, remaining);
+            int hitLine = -1;
+            for (int k = 0; k < count; ++k) {
+                int id = candidates[k];
+                if (id == passedLine)
+                    continue;
+                Line line = lines[id];
+
+                //lines only move after the balls, so they are where they started plus their motion so far
+                float offsetX = line.velocityX * elapsed;
+                float offsetY = line.velocityY * elapsed;
+                float t = SweptCollision.timeOfImpact(x, y, velocityX - line.velocityX, velocityY - line.velocityY,
+                        radius, line.startX + offsetX, line.startY + offsetY, line.endX + offsetX, line.endY + offsetY,
+                        Math.min(earliest, remaining));
+                if (t <= earliest) {
+                    earliest = t;
+                    hitLine = id;
+                }
+            }
+
+            if (earliest == SweptCollision.NO_HIT) {
+                //nothing in the way for the rest of the interval
+                x += velocityX * remaining;
+                y += velocityY * remaining;
+                break;
+            }
+
+            //move to the point of contact
+            x += velocityX * earliest;
+            y += velocityY * earliest;
+            elapsed += earliest;
+
+            if (hitLine < 0) {
+                //the ball reached a wall, remove it from the screen
+                cannonballs.set(i, x, y, velocityX, velocityY);
+                cannonballs.kill(i);
+                return false;
+            }
+
+            Line line = lines[hitLine];
+            float lineOffsetX = line.velocityX * elapsed;
+            float lineOffsetY = line.velocityY * elapsed;
+            passedLine = hitLine;
+
+            if (!line.isTarget()) {
+                //bounce off the blocker, reflecting the velocity relative to it about the contact normal
+                float dx = line.endX - line.startX;
+                float dy = line.endY - line.startY;
+                float lengthSquared = dx * dx + dy * dy;
+                float s = lengthSquared == 0 ? 0 :
+                        ((x - line.startX - lineOffsetX) * dx + (y - line.startY - lineOffsetY) * dy) / lengthSquared;
+                s = s < 0 ? 0 : (s > 1 ? 1 : s);
+                float normalX = x - (line.startX + lineOffsetX + s * dx);
+                float normalY = y - (line.startY + lineOffsetY + s * dy);
+                float normalLength = (float) Math.sqrt(normalX * normalX + normalY * normalY);
+                if (normalLength > 0) {
+                    normalX /= normalLength;
+                    normalY /= normalLength;
+                    float relativeX = velocityX - line.velocityX;
+                    float relativeY = velocityY - line.velocityY;
+                    float along = relativeX * normalX + relativeY * normalY;
+                    velocityX -= 2 * along * normalX;
+                    velocityY -= 2 * along * normalY;
+                    if (particles != null)
+                        particles.burst(ParticleSystem.BLOCKER_SPARK, BLOCKER_SPARKS, x, y, normalX, normalY,
+                                1.2f, cannonballSpeed * 0.4f, 0.3f);
+                } else {
+                    velocityX = -velocityX; //reverse cannonball's direction
+                }
+                timeLeft -= rules.getMissPenalty(); //penalize the user
+
+                if (listener != null)
+                    listener.onBlockerHit();
+                continue;
+            }
+
+            //determine target section number(0 is the start) where the line was at contact
+            int section = line.pieceAt(x - lineOffsetX, y - lineOffsetY);
+
+            //check if the piece hasn't been hit yet, otherwise fly on through
+            if (section >= 0 && section < line.pieces && !line.isPieceHit(section)) {
+                line.hitMask |= 1 << section; //section was hit
+                if (particles != null)
+                    particles.burst(ParticleSystem.TARGET_SPARK, TARGET_SPARKS, x, y, 0, 0, 0,
+                            cannonballSpeed * 0.5f, 0.6f);
+                cannonballs.set(i, x, y, velocityX, velocityY);
+                cannonballs.kill(i); //remove cannonBall
+                timeLeft += rules.getHitReward();
+
+                if (listener != null)
+                    listener.onTargetHit(section);
+
+                //if all pieces have been hit
+                if (++targetPiecesHit == targetPieces) {
+                    endGame(true);
+                    return true;
+                }
+                return false;
+            }
+        }
+
+        cannonballs.set(i, x, y, velocityX, velocityY);
+        return false;
+    }
+
+    private void endGame(boolean won) {
+        gameOver = true;
+        if (listener != null)
+            listener.onGameOver(won);
+    }
+
+    //aligns the first player's cannon towards the given point
+    public void aim(float x, float y) {
+        aim(0, x, y);
+    }
+
+    //aligns the player's cannon towards the given point
+    public void aim(int player, float x, float y) {
+        //the direction from the cannon's centre to the touch, no angle needed
+        float dx = x;
+        float dy = y - cannonY[player];
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length > 0) {
+            aimDirectionX[player] = dx / length;
+            aimDirectionY[player] = dy / length;
+        } else {
+            //a touch on the centre itself points the barrel straight up
+            aimDirectionX[player] = 0;
+            aimDirectionY[player] = -1;
+        }
+
+        //calculate the end point of the cannon barrel
+        barrelEndX[player] = cannonLength * aimDirectionX[player];
+        barrelEndY[player] = cannonY[player] + cannonLength * aimDirectionY[player];
+    }
+
+    //sets how many players have a cannon, which also points every cannon straight ahead;
+    //like setRapidFire it is a setting for a whole game
+    public void setPlayers(int players) {
+        if (players < 1 || players > MAX_PLAYERS)
+            throw new IllegalArgumentException("players must be between 1 and " + MAX_PLAYERS + ": " + players);
+        this.players = players;
+        layOutCannons();
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    //spaces the cannons evenly down the left edge, one player's is in the middle
+    private void layOutCannons() {
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            cannonY[p] = height * (p + 1) / (players + 1);
+            aimDirectionX[p] = 1;
+            aimDirectionY[p] = 0;
+            barrelEndX[p] = cannonLength;
+            barrelEndY[p] = cannonY[p];
+        }
+    }
+
+    //lets many cannonballs fly at once instead of one at a time
+    public void setRapidFire(boolean rapidFire) {
+        maxLiveCannonballs = rapidFire ? cannonballLimit : 1;
+    }
+
+    //caps how many cannonballs rapid fire lets fly at once, between 2 and the capacity;
+    //it changes the game so the app only sets it between games
+    public void setCannonballLimit(int limit) {
+        cannonballLimit = Math.max(2, Math.min(limit, cannonballs.capacity()));
+        if (isRapidFire())
+            maxLiveCannonballs = cannonballLimit;
+    }
+
+    public int getCannonballLimit() {
+        return cannonballLimit;
+    }
+
+    public boolean isRapidFire() {
+        return maxLiveCannonballs > 1;
+    }
+
+    //fires a cannonball from the first player's cannon towards the given point, returns false if no more may fly
+    public boolean fire(float x, float y) {
+        return fire(0, x, y);
+    }
+
+    //the same from the player's cannon; the players share the limit on cannonballs in flight
+    public boolean fire(int player, float x, float y) {
+        if (cannonballs.liveCount() >= maxLiveCannonballs * players || gameOver)
+            return false;
+        aim(player, x, y); //point the barrel at the touch
+
+        //start the cannonball inside the cannon with the x and y components of the total velocity
+        float directionX = aimDirectionX[player];
+        float directionY = aimDirectionY[player];
+        cannonballs.spawn(cannonballRadius, cannonY[player],
+                cannonballSpeed * directionX, cannonballSpeed * directionY);
+        ++shotsFired;
+        if (particles != null)
+            particles.burst(ParticleSystem.MUZZLE_FLASH, MUZZLE_SPARKS, barrelEndX[player], barrelEndY[player],
+                    directionX, directionY, 0.35f, cannonballSpeed * 0.6f, 0.15f);
+
+        if (listener != null)
+            listener.onCannonFired();
+        return true;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public double getTimeLeft() {
+        return timeLeft;
+    }
+
+    public int getShotsFired() {
+        return shotsFired;
+    }
+
+    public double getTotalTimeElapsed() {
+        return totalTimeElapsed;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public Line getLine(int i) {
+        return lines[i];
+    }
+
+    //the first blocker or target, or null if there is none
+    public Line findLine(int type) {
+        for (int i = 0; i < lineCount; ++i) {
+            if (lines[i].type == type)
+                return lines[i];
+        }
+        return null;
+    }
+
+    public int getTargetPieces() {
+        return targetPieces;
+    }
+
+    public int getTargetPiecesHit() {
+        return targetPiecesHit;
+    }
+
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    public boolean isCannonballOnScreen() {
+        return cannonballs.liveCount() > 0;
+    }
+
+    public CannonballPool getCannonballs() {
+        return cannonballs;
+    }
+
+    public float getCannonballRadius() {
+        return cannonballRadius;
+    }
+
+    public float getCannonBaseRadius() {
+        return cannonBaseRadius;
+    }
+
+    public float getBarrelEndX() {
+        return barrelEndX[0];
+    }
+
+    public float getBarrelEndY() {
+        return barrelEndY[0];
+    }
+
+    public float getBarrelEndX(int player) {
+        return barrelEndX[player];
+    }
+
+    public float getBarrelEndY(int player) {
+        return barrelEndY[player];
+    }
+
+    //the centre of the player's cannon on the left edge
+    public float getCannonY(int player) {
+        return cannonY[player];
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,302 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+//every player command applied during one game, stamped with the simulation tick it took
+//effect before, plus what is needed to set the game up again, including the level's lines. Together with the fixed
+//timestep this is enough for ReplayEngine to reproduce the game exactly.
+public class InputJournal {
+    private static final int MAGIC = 0x434a4e4c; //"CJNL"
+    //1 had no level, its games used the default one; 1 and 2 had whole pixel sizes; 1 to 3 had no cannonball limit
+    private static final int VERSION = 4;
+    private static final int VALUES_PER_LINE = 6; //start x and y, end x and y, velocity x and y
+
+    private float width;
+    private float height;
+    private double tickSeconds; //interval passed to every GameWorld.step
+    private boolean rapidFire; //whether the game started in rapid fire
+    private int cannonballLimit = GameWorld.DEFAULT_CANNONBALL_CAPACITY; //most live cannonballs in rapid fire
+
+    //the level the game was played on in pixels, lineCount is -1 for the default level of setSize
+    private double gameDuration = GameWorld.GAME_DURATION;
+    private int lineCount = -1;
+    private final int[] lineTypes = new int[GameWorld.MAX_LINES];
+    private final int[] linePieces = new int[GameWorld.MAX_LINES];
+    private final float[] lineValues = new float[GameWorld.MAX_LINES * VALUES_PER_LINE];
+
+    private long[] ticks = new long[64];
+    private byte[] types = new byte[64];
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private int size;
+
+    //forgets every command and starts a journal for the game the world is about to play,
+    //which must not have stepped since newGame()
+    public void begin(GameWorld world, double tickSeconds) {
+        begin(world.getWidth(), world.getHeight(), tickSeconds, world.isRapidFire());
+        cannonballLimit = world.getCannonballLimit();
+        gameDuration = world.getGameDuration();
+        lineCount = world.getLineCount();
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = world.getLine(i);
+            lineTypes[i] = line.getType();
+            linePieces[i] = line.getPieces();
+            setLine(i, line.startX, line.startY, line.endX, line.endY, line.velocityX, line.velocityY);
+        }
+    }
+
+    private void setLine(int i, float startX, float startY, float endX, float endY, float velocityX, float velocityY) {
+        int at = i * VALUES_PER_LINE;
+        lineValues[at] = startX;
+        lineValues[at + 1] = startY;
+        lineValues[at + 2] = endX;
+        lineValues[at + 3] = endY;
+        lineValues[at + 4] = velocityX;
+        lineValues[at + 5] = velocityY;
+    }
+
+    //sets the world up with the level this game was played on, or leaves its default level
+    void applyLevelTo(GameWorld world) {
+        if (lineCount < 0)
+            return;
+        world.clearLines();
+        for (int i = 0; i < lineCount; ++i) {
+            int at = i * VALUES_PER_LINE;
+            if (lineTypes[i] == Line.TARGET) {
+                world.addTarget(lineValues[at], lineValues[at + 1], lineValues[at + 2], lineValues[at + 3],
+                        lineValues[at + 4], lineValues[at + 5], linePieces[i]);
+            } else {
+                world.addBlocker(lineValues[at], lineValues[at + 1], lineValues[at + 2], lineValues[at + 3],
+                        lineValues[at + 4], lineValues[at + 5]);
+            }
+        }
+        world.setGameDuration(gameDuration);
+    }
+
+    public void begin(float width, float height, double tickSeconds, boolean rapidFire) {
+        if (!(tickSeconds > 0))
+            throw new IllegalArgumentException("tick length must be positive: " + tickSeconds);
+        this.width = width;
+        this.height = height;
+        this.tickSeconds = tickSeconds;
+        this.rapidFire = rapidFire;
+        cannonballLimit = GameWorld.DEFAULT_CANNONBALL_CAPACITY;
+        gameDuration = GameWorld.GAME_DURATION;
+        lineCount = -1;
+        size = 0;
+    }
+
+    //forgets every command and stops recording until the next begin, for a game that was not
+    //played from its start and so cannot be replayed
+    public void discard() {
+        tickSeconds = 0;
+        size = 0;
+    }
+
+    //true between begin and discard
+    public boolean isRecording() {
+        return tickSeconds > 0;
+    }
+
+    //adds a command applied before the given tick, ticks must not decrease
+    public void record(long tick, int type, float x, float y) {
+        if (size > 0 && tick < ticks[size - 1])
+            throw new IllegalArgumentException("tick " + tick + " is before " + ticks[size - 1]);
+        if (size == ticks.length) {
+            int capacity = size * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            types = Arrays.copyOf(types, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        ticks[size] = tick;
+        types[size] = (byte) type;
+        xs[size] = x;
+        ys[size] = y;
+        ++size;
+    }
+
+    //a separate journal with the same game and commands, for writing out on another thread
+    public InputJournal copy() {
+        InputJournal copy = new InputJournal();
+        copy.width = width;
+        copy.height = height;
+        copy.tickSeconds = tickSeconds;
+        copy.rapidFire = rapidFire;
+        copy.cannonballLimit = cannonballLimit;
+        copy.gameDuration = gameDuration;
+        copy.lineCount = lineCount;
+        System.arraycopy(lineTypes, 0, copy.lineTypes, 0, lineTypes.length);
+        System.arraycopy(linePieces, 0, copy.linePieces, 0, linePieces.length);
+        System.arraycopy(lineValues, 0, copy.lineValues, 0, lineValues.length);
+        int capacity = Math.max(size, 1);
+        copy.ticks = Arrays.copyOf(ticks, capacity);
+        copy.types = Arrays.copyOf(types, capacity);
+        copy.xs = Arrays.copyOf(xs, capacity);
+        copy.ys = Arrays.copyOf(ys, capacity);
+        copy.size = size;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTick(int i) {
+        return ticks[i];
+    }
+
+    public int getType(int i) {
+        return types[i];
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public double getTickSeconds() {
+        return tickSeconds;
+    }
+
+    public boolean isRapidFire() {
+        return rapidFire;
+    }
+
+    public int getCannonballLimit() {
+        return cannonballLimit;
+    }
+
+    //writes the journal as a header, the level's lines unless it was the default one, then one
+    //record per command: the tick as a variable-length delta from the previous command, the type
+    //byte and the two coordinates
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeFloat(width);
+        data.writeFloat(height);
+        data.writeDouble(tickSeconds);
+        data.writeBoolean(rapidFire);
+        data.writeShort(cannonballLimit);
+        data.writeByte(lineCount); //-1 for the default level
+        if (lineCount >= 0) {
+            data.writeDouble(gameDuration);
+            for (int i = 0; i < lineCount; ++i) {
+                data.writeByte(lineTypes[i]);
+                data.writeByte(linePieces[i]);
+                for (int k = 0; k < VALUES_PER_LINE; ++k)
+                    data.writeFloat(lineValues[i * VALUES_PER_LINE + k]);
+            }
+        }
+        data.writeInt(size);
+        long previousTick = 0;
+        for (int i = 0; i < size; ++i) {
+            writeVarLong(data, ticks[i] - previousTick);
+            previousTick = ticks[i];
+            data.writeByte(types[i]);
+            data.writeFloat(xs[i]);
+            data.writeFloat(ys[i]);
+        }
+        data.flush();
+    }
+
+    //reads a journal written by writeTo, rejecting anything the world could not be set up with
+    public static InputJournal readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("not an input journal");
+        int version = data.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("unsupported input journal version " + version);
+
+        InputJournal journal = new InputJournal();
+        float width = version >= 3 ? data.readFloat() : data.readInt();
+        float height = version >= 3 ? data.readFloat() : data.readInt();
+        if (!(width > 0 && height > 0))
+            throw new IOException("bad world size " + width + "x" + height);
+        double tickSeconds = data.readDouble();
+        if (!(tickSeconds > 0))
+            throw new IOException("bad tick length " + tickSeconds);
+        journal.begin(width, height, tickSeconds, data.readBoolean());
+        if (version >= 4)
+            journal.cannonballLimit = data.readUnsignedShort();
+        if (version >= 2) {
+            int lineCount = data.readByte();
+            if (lineCount < -1 || lineCount > GameWorld.MAX_LINES)
+                throw new IOException("bad line count " + lineCount);
+            if (lineCount >= 0) {
+                journal.gameDuration = data.readDouble();
+                if (!(journal.gameDuration > 0) || Double.isInfinite(journal.gameDuration))
+                    throw new IOException("bad game duration " + journal.gameDuration);
+                journal.lineCount = lineCount;
+                for (int i = 0; i < lineCount; ++i) {
+                    int type = data.readByte();
+                    int pieces = data.readUnsignedByte();
+                    if (type != Line.BLOCKER && type != Line.TARGET)
+                        throw new IOException("bad type " + type + " for line " + i);
+                    if (pieces < 1 || pieces > Line.MAX_PIECES)
+                        throw new IOException("bad piece count " + pieces + " for line " + i);
+                    journal.lineTypes[i] = type;
+                    journal.linePieces[i] = pieces;
+                    for (int k = 0; k < VALUES_PER_LINE; ++k) {
+                        float value = data.readFloat();
+                        if (Float.isNaN(value) || Float.isInfinite(value))
+                            throw new IOException("bad position or velocity for line " + i);
+                        journal.lineValues[i * VALUES_PER_LINE + k] = value;
+                    }
+                }
+            }
+        }
+
+        int size = data.readInt();
+        if (size < 0)
+            throw new IOException("bad command count " + size);
+        long tick = 0;
+        for (int i = 0; i < size; ++i) {
+            tick += readVarLong(data);
+            if (tick < 0)
+                throw new IOException("bad tick for command " + i);
+            int type = data.readByte();
+            if (type < CommandQueue.AIM || type > CommandQueue.TOGGLE_RAPID_FIRE)
+                throw new IOException("bad type " + type + " for command " + i);
+            journal.record(tick, type, data.readFloat(), data.readFloat());
+        }
+        return journal;
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            data.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed tick delta");
+    }
+}
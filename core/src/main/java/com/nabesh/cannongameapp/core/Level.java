@@ -0,0 +1,98 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//the blockers, targets and time budget of one level, independent of screen size: x coordinates
+//and velocities are fractions of the screen width (per second), y ones fractions of its height.
+//The layout for each world size is worked out once and kept, worlds sized by aspect ratio share it.
+public class Level {
+    //values per line in coordinates and in a layout
+    static final int START_X = 0;
+    static final int START_Y = 1;
+    static final int END_X = 2;
+    static final int END_Y = 3;
+    static final int VELOCITY_X = 4;
+    static final int VELOCITY_Y = 5;
+    static final int VALUES_PER_LINE = 6;
+
+    private final String name;
+    private final double duration;
+    private final int[] types;
+    private final int[] pieces;
+    private final float[] coordinates;
+
+    //layouts by world size, the key packs the bits of width and height
+    private final Map<Long, float[]> layouts = new HashMap<Long, float[]>();
+
+    Level(String name, double duration, int[] types, int[] pieces, float[] coordinates) {
+        if (!(duration > 0))
+            throw new IllegalArgumentException("level " + name + " needs a positive time budget: " + duration);
+        if (types.length > GameWorld.MAX_LINES)
+            throw new IllegalArgumentException("level " + name + " has more than " + GameWorld.MAX_LINES + " lines");
+        this.name = name;
+        this.duration = duration;
+        this.types = types;
+        this.pieces = pieces;
+        this.coordinates = coordinates;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
+    public int getLineCount() {
+        return types.length;
+    }
+
+    int getType(int line) {
+        return types[line];
+    }
+
+    int getPieces(int line) {
+        return pieces[line];
+    }
+
+    float getCoordinate(int line, int value) {
+        return coordinates[line * VALUES_PER_LINE + value];
+    }
+
+    //replaces the world's blockers and targets with this level's, laid out for the world's
+    //current size; takes effect at the next newGame()
+    public void applyTo(GameWorld world) {
+        float[] layout = layoutFor(world.getWidth(), world.getHeight());
+
+        world.clearLines();
+        for (int i = 0; i < types.length; ++i) {
+            int at = i * VALUES_PER_LINE;
+            if (types[i] == Line.TARGET) {
+                world.addTarget(layout[at + START_X], layout[at + START_Y], layout[at + END_X], layout[at + END_Y],
+                        layout[at + VELOCITY_X], layout[at + VELOCITY_Y], pieces[i]);
+            } else {
+                world.addBlocker(layout[at + START_X], layout[at + START_Y], layout[at + END_X], layout[at + END_Y],
+                        layout[at + VELOCITY_X], layout[at + VELOCITY_Y]);
+            }
+        }
+        world.setGameDuration(duration);
+    }
+
+    //the level in world units for a world of the given size
+    float[] layoutFor(float width, float height) {
+        Long key = ((long) Float.floatToIntBits(width) << 32) | (Float.floatToIntBits(height) & 0xffffffffL);
+        float[] layout = layouts.get(key);
+        if (layout == null) {
+            layout = new float[coordinates.length];
+            for (int i = 0; i < coordinates.length; ++i) {
+                boolean horizontal = i % VALUES_PER_LINE == START_X || i % VALUES_PER_LINE == END_X ||
+                        i % VALUES_PER_LINE == VELOCITY_X;
+                layout[i] = coordinates[i] * (horizontal ? width : height);
+            }
+            layouts.put(key, layout);
+        }
+        return layout;
+    }
+}
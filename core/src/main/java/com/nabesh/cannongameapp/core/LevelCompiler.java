@@ -0,0 +1,140 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+//turns levels written as text into a LevelPack. Each level starts with "level <name>",
+//followed by "time <seconds>" and one line per obstacle:
+//
+//  blocker <startX> <startY> <endX> <endY> <velocityX> <velocityY>
+//  target <startX> <startY> <endX> <endY> <velocityX> <velocityY> <pieces>
+//
+//x values are fractions of the screen width and y values fractions of its height, velocities
+//are in widths or heights per second. Blank lines and lines starting with # are ignored.
+public final class LevelCompiler {
+
+    private LevelCompiler() {
+    }
+
+    //compiles the text form and returns the pack's bytes
+    public static byte[] compile(Reader text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LevelPack.write(parse(text), out);
+        return out.toByteArray();
+    }
+
+    static Level[] parse(Reader text) throws IOException {
+        List<Level> levels = new ArrayList<Level>();
+        BufferedReader reader = new BufferedReader(text);
+
+        String name = null;
+        double duration = 0;
+        List<int[]> kinds = new ArrayList<int[]>(); //type and pieces of each line
+        List<float[]> values = new ArrayList<float[]>();
+        int lineNumber = 0;
+        for (String line; (line = reader.readLine()) != null; ) {
+            ++lineNumber;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] words = line.split("\\s+");
+            try {
+                if (words[0].equals("level")) {
+                    if (name != null)
+                        levels.add(build(name, duration, kinds, values));
+                    name = line.substring(words[0].length()).trim();
+                    duration = 0;
+                    kinds.clear();
+                    values.clear();
+                    continue;
+                }
+                if (name == null)
+                    throw new IOException("expected level");
+                if (words[0].equals("time")) {
+                    expectWords(words, 2);
+                    duration = Double.parseDouble(words[1]);
+                } else if (words[0].equals("blocker")) {
+                    expectWords(words, 7);
+                    kinds.add(new int[]{Line.BLOCKER, 1});
+                    values.add(parseValues(words));
+                } else if (words[0].equals("target")) {
+                    expectWords(words, 8);
+                    kinds.add(new int[]{Line.TARGET, Integer.parseInt(words[7])});
+                    values.add(parseValues(words));
+                } else {
+                    throw new IOException("unknown keyword " + words[0]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + lineNumber + ": bad number, " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("line " + lineNumber + ": " + e.getMessage());
+            } catch (IOException e) {
+                throw new IOException("line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        if (name != null) {
+            try {
+                levels.add(build(name, duration, kinds, values));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+        return levels.toArray(new Level[levels.size()]);
+    }
+
+    private static void expectWords(String[] words, int count) throws IOException {
+        if (words.length != count)
+            throw new IOException(words[0] + " takes " + (count - 1) + " values");
+    }
+
+    private static float[] parseValues(String[] words) {
+        float[] values = new float[Level.VALUES_PER_LINE];
+        for (int i = 0; i < values.length; ++i)
+            values[i] = Float.parseFloat(words[1 + i]);
+        return values;
+    }
+
+    private static Level build(String name, double duration, List<int[]> kinds, List<float[]> values) {
+        int count = kinds.size();
+        int[] types = new int[count];
+        int[] pieces = new int[count];
+        float[] coordinates = new float[count * Level.VALUES_PER_LINE];
+        for (int i = 0; i < count; ++i) {
+            types[i] = kinds.get(i)[0];
+            pieces[i] = kinds.get(i)[1];
+            if (pieces[i] < 1 || pieces[i] > Line.MAX_PIECES)
+                throw new IllegalArgumentException("level " + name + ": pieces must be between 1 and " + Line.MAX_PIECES);
+            System.arraycopy(values.get(i), 0, coordinates, i * Level.VALUES_PER_LINE, Level.VALUES_PER_LINE);
+        }
+        return new Level(name, duration, types, pieces, coordinates);
+    }
+
+    //compiles a text level file into a pack: LevelCompiler <levels.txt> <levels.lvl>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: LevelCompiler <levels.txt> <levels.lvl>");
+            System.exit(2);
+        }
+        Reader in = new InputStreamReader(new FileInputStream(args[0]), "UTF-8");
+        byte[] pack;
+        try {
+            pack = compile(in);
+        } finally {
+            in.close();
+        }
+        OutputStream out = new FileOutputStream(args[1]);
+        try {
+            out.write(pack);
+        } finally {
+            out.close();
+        }
+    }
+}
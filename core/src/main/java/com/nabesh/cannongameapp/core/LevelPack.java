@@ -0,0 +1,116 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+//a set of levels in a compact binary form, read straight out of a buffer that is usually
+//memory-mapped from a file. Opening a pack only reads its header; each level is parsed the
+//first time it is asked for.
+//
+//The format is big-endian: the magic "CLVL", a version byte, the level count and the offset of
+//every level, then the levels. A level is its name (a short length and UTF-8 bytes), the time
+//budget as a float, a line count byte and per line a type byte, a pieces byte and six floats:
+//start x and y, end x and y, velocity x and y, in the units of Level.
+public class LevelPack {
+    private static final int MAGIC = 0x434c564c; //"CLVL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 9; //magic, version, level count
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final Level[] levels; //parsed so far
+
+    public LevelPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("not a level pack");
+        int version = buffer.get(4) & 0xff;
+        if (version != VERSION)
+            throw new IOException("unsupported level pack version " + version);
+        int count = buffer.getInt(5);
+        if (count < 0 || HEADER_SIZE + 4L * count > buffer.limit())
+            throw new IOException("bad level count " + count);
+        levels = new Level[count];
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    //level i, parsed on first use
+    public synchronized Level getLevel(int i) throws IOException {
+        if (levels[i] == null)
+            levels[i] = parse(buffer.getInt(HEADER_SIZE + 4 * i));
+        return levels[i];
+    }
+
+    private Level parse(int offset) throws IOException {
+        try {
+            int at = offset;
+            int nameLength = buffer.getShort(at) & 0xffff;
+            at += 2;
+            byte[] nameBytes = new byte[nameLength];
+            for (int i = 0; i < nameLength; ++i)
+                nameBytes[i] = buffer.get(at++);
+            String name = new String(nameBytes, UTF_8);
+            float duration = buffer.getFloat(at);
+            at += 4;
+            int lineCount = buffer.get(at++) & 0xff;
+
+            int[] types = new int[lineCount];
+            int[] pieces = new int[lineCount];
+            float[] coordinates = new float[lineCount * Level.VALUES_PER_LINE];
+            for (int i = 0; i < lineCount; ++i) {
+                types[i] = buffer.get(at++);
+                pieces[i] = buffer.get(at++) & 0xff;
+                for (int k = 0; k < Level.VALUES_PER_LINE; ++k) {
+                    coordinates[i * Level.VALUES_PER_LINE + k] = buffer.getFloat(at);
+                    at += 4;
+                }
+            }
+            return new Level(name, duration, types, pieces, coordinates);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("level at " + offset + " runs past the end of the pack");
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    //writes the levels as a pack
+    public static void write(Level[] levels, OutputStream out) throws IOException {
+        byte[][] names = new byte[levels.length][];
+        int offset = HEADER_SIZE + 4 * levels.length;
+        int[] offsets = new int[levels.length];
+        for (int i = 0; i < levels.length; ++i) {
+            names[i] = levels[i].getName().getBytes(UTF_8);
+            if (names[i].length > 0xffff)
+                throw new IOException("level name too long: " + levels[i].getName());
+            offsets[i] = offset;
+            offset += 2 + names[i].length + 4 + 1 + levels[i].getLineCount() * (2 + 4 * Level.VALUES_PER_LINE);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(levels.length);
+        for (int levelOffset : offsets)
+            data.writeInt(levelOffset);
+        for (int i = 0; i < levels.length; ++i) {
+            Level level = levels[i];
+            data.writeShort(names[i].length);
+            data.write(names[i]);
+            data.writeFloat((float) level.getDuration());
+            data.writeByte(level.getLineCount());
+            for (int line = 0; line < level.getLineCount(); ++line) {
+                data.writeByte(level.getType(line));
+                data.writeByte(level.getPieces(line));
+                for (int k = 0; k < Level.VALUES_PER_LINE; ++k)
+                    data.writeFloat(level.getCoordinate(line, k));
+            }
+        }
+        data.flush();
+    }
+}
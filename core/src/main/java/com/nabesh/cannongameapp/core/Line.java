@@ -0,0 +1,174 @@
+package com.nabesh.cannongameapp.core;
+
+import java.nio.ByteBuffer;
+
+//a moving line segment obstacle in world coordinates, either a blocker
+//that bounces cannonballs back or a target split into pieces that can be hit
+public class Line {
+    public static final int BLOCKER = 0;
+    public static final int TARGET = 1;
+
+    public static final int MAX_PIECES = 32; //hit states are kept in an int bitmask
+
+    public float startX;
+    public float startY;
+    public float endX;
+    public float endY;
+
+    //position of the start point at the previous tick, for interpolated drawing
+    public float previousStartX;
+    public float previousStartY;
+
+    public float velocityX;
+    public float velocityY;
+
+    int type = BLOCKER;
+    int pieces = 1;
+    int hitMask; //bit i is set once piece i has been hit
+
+    //where the line is and how it moves at the start of a game
+    private float initialStartX;
+    private float initialStartY;
+    private float initialEndX;
+    private float initialEndY;
+    private float initialVelocityX;
+    private float initialVelocityY;
+
+    //makes this line a blocker or target that starts a game at the given place and velocity
+    void define(int type, int pieces, float startX, float startY, float endX, float endY,
+                float velocityX, float velocityY) {
+        if (pieces < 1 || pieces > MAX_PIECES)
+            throw new IllegalArgumentException("pieces must be between 1 and " + MAX_PIECES + ": " + pieces);
+        this.type = type;
+        this.pieces = pieces;
+        initialStartX = startX;
+        initialStartY = startY;
+        initialEndX = endX;
+        initialEndY = endY;
+        initialVelocityX = velocityX;
+        initialVelocityY = velocityY;
+        reset();
+    }
+
+    //makes this line an exact copy of another
+    void copyFrom(Line other) {
+        startX = other.startX;
+        startY = other.startY;
+        endX = other.endX;
+        endY = other.endY;
+        previousStartX = other.previousStartX;
+        previousStartY = other.previousStartY;
+        velocityX = other.velocityX;
+        velocityY = other.velocityY;
+        type = other.type;
+        pieces = other.pieces;
+        hitMask = other.hitMask;
+        initialStartX = other.initialStartX;
+        initialStartY = other.initialStartY;
+        initialEndX = other.initialEndX;
+        initialEndY = other.initialEndY;
+        initialVelocityX = other.initialVelocityX;
+        initialVelocityY = other.initialVelocityY;
+    }
+
+    //writes where the line is and where it starts a game as fractions of a width by height screen
+    void writeState(ByteBuffer out, float width, float height) {
+        out.putFloat(startX / width);
+        out.putFloat(startY / height);
+        out.putFloat(endX / width);
+        out.putFloat(endY / height);
+        out.putFloat(velocityX / width);
+        out.putFloat(velocityY / height);
+        out.putFloat(initialStartX / width);
+        out.putFloat(initialStartY / height);
+        out.putFloat(initialEndX / width);
+        out.putFloat(initialEndY / height);
+        out.putFloat(initialVelocityX / width);
+        out.putFloat(initialVelocityY / height);
+    }
+
+    //reads what writeState wrote, scaled to a width by height screen
+    void readState(ByteBuffer in, int type, int pieces, float width, float height) {
+        float x0 = in.getFloat() * width, y0 = in.getFloat() * height;
+        float x1 = in.getFloat() * width, y1 = in.getFloat() * height;
+        float vx = in.getFloat() * width, vy = in.getFloat() * height;
+        define(type, pieces, in.getFloat() * width, in.getFloat() * height, in.getFloat() * width,
+                in.getFloat() * height, in.getFloat() * width, in.getFloat() * height);
+        set(x0, y0, x1, y1);
+        velocityX = vx;
+        velocityY = vy;
+    }
+
+    //puts the line back where it starts a game
+    void reset() {
+        set(initialStartX, initialStartY, initialEndX, initialEndY);
+        velocityX = initialVelocityX;
+        velocityY = initialVelocityY;
+        hitMask = 0;
+    }
+
+    public void set(float startX, float startY, float endX, float endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        previousStartX = startX;
+        previousStartY = startY;
+    }
+
+    //moves the whole line
+    public void offset(float dx, float dy) {
+        startX += dx;
+        startY += dy;
+        endX += dx;
+        endY += dy;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isTarget() {
+        return type == TARGET;
+    }
+
+    public int getPieces() {
+        return pieces;
+    }
+
+    public boolean isPieceHit(int piece) {
+        return (hitMask & (1 << piece)) != 0;
+    }
+
+    //true once every piece has been hit
+    public boolean isDestroyed() {
+        return hitMask == (pieces == MAX_PIECES ? -1 : (1 << pieces) - 1);
+    }
+
+    public float minX() {
+        return Math.min(startX, endX);
+    }
+
+    public float maxX() {
+        return Math.max(startX, endX);
+    }
+
+    public float minY() {
+        return Math.min(startY, endY);
+    }
+
+    public float maxY() {
+        return Math.max(startY, endY);
+    }
+
+    //the piece nearest to the given point, projected onto the line (0 is the start)
+    public int pieceAt(float x, float y) {
+        float dx = endX - startX;
+        float dy = endY - startY;
+        float lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0)
+            return 0;
+        float t = ((x - startX) * dx + (y - startY) * dy) / lengthSquared;
+        return (int) (t * pieces);
+    }
+}
@@ -0,0 +1,116 @@
+package com.nabesh.cannongameapp.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+//one end of the link between two players: a non-blocking UDP socket connected to the other
+//player, so datagrams from anywhere else never arrive. Sending and receiving never throw, a
+//failure is counted and looks like a lost datagram, which LockstepSession already copes with.
+//Counts what goes each way for the bandwidth figures. Used from one thread.
+public class LockstepPeer implements Closeable {
+    public static final int MAX_PACKET_BYTES = 512;
+
+    private final DatagramChannel channel;
+    private long packetsSent;
+    private long bytesSent;
+    private long packetsReceived;
+    private long bytesReceived;
+    private long failures;
+    private int sendLoss; //drops one in this many outgoing datagrams, 0 for none; for tests
+    private long sendCount;
+
+    //binds to the given local address, port 0 for any free port
+    public LockstepPeer(InetSocketAddress local) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.socket().bind(local);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //only exchanges datagrams with the given address from now on
+    public void connect(InetSocketAddress remote) throws IOException {
+        channel.connect(remote);
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) channel.socket().getLocalSocketAddress();
+    }
+
+    //sends the packet between its position and limit, returns false if it didn't go
+    public boolean send(ByteBuffer packet) {
+        int bytes = packet.remaining();
+        if (sendLoss > 0 && ++sendCount % sendLoss == 0) {
+            packet.position(packet.limit());
+            ++packetsSent;
+            bytesSent += bytes;
+            return true; //sent, and lost on the way
+        }
+        try {
+            if (channel.write(packet) != bytes)
+                return false;
+        } catch (IOException e) {
+            //includes the other player's port not being open yet
+            ++failures;
+            return false;
+        }
+        ++packetsSent;
+        bytesSent += bytes;
+        return true;
+    }
+
+    //reads the next waiting datagram into the buffer, flipped for reading; false if there is none
+    public boolean receive(ByteBuffer packet) {
+        packet.clear();
+        int bytes;
+        try {
+            bytes = channel.read(packet);
+        } catch (IOException e) {
+            ++failures;
+            return false;
+        }
+        if (bytes <= 0)
+            return false;
+        packet.flip();
+        ++packetsReceived;
+        bytesReceived += bytes;
+        return true;
+    }
+
+    void setSendLoss(int oneIn) {
+        sendLoss = oneIn;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    //payload bytes, without the UDP and IP headers
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    //sends and receives that failed
+    public long getFailures() {
+        return failures;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
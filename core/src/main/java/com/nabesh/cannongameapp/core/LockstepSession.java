@@ -0,0 +1,438 @@
+package com.nabesh.cannongameapp.core;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+//plays a two player game over a LockstepPeer. Both players run the same GameWorld and apply
+//both players' commands at the same ticks, so the worlds stay identical without ever sending
+//the state. A command takes effect inputDelay ticks after it was given, which hides most of the
+//network delay; when the other player's commands for a tick are still on their way the world
+//runs on, predicting no command, and keeps a copy of the state before that tick. Should the
+//commands turn out to be something else the world rolls back to that copy and plays the ticks
+//again. It never runs more than maxPrediction ticks ahead of the other player.
+//
+//Each pass sends one datagram: which tick of the other player's it has everything up to, then
+//every command of its own the other player hasn't confirmed, a flags byte per tick and two
+//16-bit coordinates when the tick aims or fires. Lost datagrams are covered by the next one.
+//Both players must set their worlds up the same way, with two players, before the session starts.
+//Everything runs on the thread calling tick.
+//
+//Once the game is over the session keeps sending until the other player has confirmed every
+//command up to the end, then a few datagrams more so the other player hears that confirmation,
+//and only then reports game over; after that tick need not be called. If nothing arrives for
+//silenceLimit passes the other player is taken to be gone, see isPeerLost.
+public class LockstepSession {
+    //what a player did during one tick
+    public static final int AIM = 1;
+    public static final int FIRE = 2; //aims too
+    public static final int TOGGLE_RAPID_FIRE = 4;
+
+    public static final int DEFAULT_SILENCE_LIMIT = 600; //passes, ten seconds at 60 a second
+
+    private static final int HISTORY = 256; //ticks of commands kept for each player, a power of two
+    private static final int MAX_TICKS_PER_PACKET = 64;
+    private static final byte PACKET_TYPE = 0x4c; //'L'
+    private static final int FINAL_SENDS = 8; //datagrams sent after the other player confirmed the end, carrying our confirmation back
+    private static final float COORDINATE_STEPS = 65535; //coordinates travel as fractions of the world's size
+
+    private final GameWorld world;
+    private final LockstepPeer peer;
+    private final int localPlayer;
+    private final int remotePlayer;
+    private final int inputDelay;
+    private final int maxPrediction;
+    private final double tickSeconds;
+
+    //commands by player and tick modulo HISTORY; coordinates are kept as sent so both players use the same values
+    private final byte[][] flags = new byte[2][HISTORY];
+    private final char[][] xs = new char[2][HISTORY];
+    private final char[][] ys = new char[2][HISTORY];
+    private long localNext; //first tick with no local command decided
+    private long remoteNext; //first tick the other player's command hasn't arrived for
+    private long remoteAck; //first local tick the other player hasn't confirmed
+
+    //commands given since the last tick was decided
+    private int pendingFlags;
+    private char pendingX;
+    private char pendingY;
+
+    //the state before each tick that ran on a prediction, by tick modulo maxPrediction
+    private final GameWorld[] saved;
+
+    private final ByteBuffer packet = ByteBuffer.allocate(LockstepPeer.MAX_PACKET_BYTES);
+    private final Forwarder forwarder = new Forwarder();
+    private boolean agreed; //game over and the other player's commands up to the end are in
+    private boolean finished;
+    private int finalSends;
+    private int silenceLimit = DEFAULT_SILENCE_LIMIT;
+    private long passes; //calls to tick
+    private long lastHeardPass; //the pass a datagram last arrived on, or the first pass
+    private boolean peerLost;
+
+    //statistics
+    private long ticksRun; //ticks stepped for the first time
+    private long stalls; //passes spent waiting for the other player
+    private long rollbacks;
+    private long resimulatedTicks;
+    private long longestRollback;
+    private long rollbackNanos;
+    private long badPackets;
+
+    //the world must be laid out for two players and at tick 0; both players use the same tick length,
+    //input delay and prediction limit
+    public LockstepSession(GameWorld world, LockstepPeer peer, int localPlayer, double tickSeconds,
+                           int inputDelay, int maxPrediction) {
+        if (localPlayer != 0 && localPlayer != 1)
+            throw new IllegalArgumentException("local player must be 0 or 1: " + localPlayer);
+        if (world.getPlayers() != 2)
+            throw new IllegalArgumentException("the world must have two players");
+        if (!(tickSeconds > 0))
+            throw new IllegalArgumentException("tick length must be positive: " + tickSeconds);
+        if (inputDelay < 0 || maxPrediction < 1 || maxPrediction + 2 * inputDelay + MAX_TICKS_PER_PACKET > HISTORY)
+            throw new IllegalArgumentException("bad input delay " + inputDelay + " or prediction " + maxPrediction);
+        this.world = world;
+        this.peer = peer;
+        this.localPlayer = localPlayer;
+        remotePlayer = 1 - localPlayer;
+        this.tickSeconds = tickSeconds;
+        this.inputDelay = inputDelay;
+        this.maxPrediction = maxPrediction;
+
+        //nobody commands the first inputDelay ticks
+        localNext = world.getTick() + inputDelay;
+        remoteNext = localNext;
+        remoteAck = localNext;
+
+        int capacity = world.getCannonballs().capacity();
+        saved = new GameWorld[maxPrediction];
+        for (int i = 0; i < maxPrediction; ++i)
+            saved[i] = new GameWorld(capacity);
+        world.setListener(forwarder);
+    }
+
+    //hears the world's events while ticks run for the first time, not while they are played again
+    //after a rollback; onGameOver comes once both players agree on the ticks that ended the game
+    public void setListener(GameWorld.Listener listener) {
+        forwarder.listener = listener;
+    }
+
+    //how many passes without a datagram make the other player count as gone; it also covers a
+    //player who never turns up, so it should allow for starting the game on both devices
+    public void setSilenceLimit(int passes) {
+        if (passes < 1)
+            throw new IllegalArgumentException("silence limit must be positive: " + passes);
+        silenceLimit = passes;
+    }
+
+    //takes a command in CommandQueue's terms, it goes into the next tick decided
+    public void command(int type, float x, float y) {
+        switch (type) {
+            case CommandQueue.AIM:
+                if ((pendingFlags & FIRE) == 0) //a fire in the same tick already aims
+                    setPendingPoint(x, y);
+                pendingFlags |= AIM;
+                break;
+            case CommandQueue.FIRE:
+                setPendingPoint(x, y);
+                pendingFlags |= FIRE;
+                break;
+            case CommandQueue.TOGGLE_RAPID_FIRE:
+                pendingFlags ^= TOGGLE_RAPID_FIRE;
+                break;
+        }
+    }
+
+    private void setPendingPoint(float x, float y) {
+        pendingX = toSteps(x, world.getWidth());
+        pendingY = toSteps(y, world.getHeight());
+    }
+
+    private static char toSteps(float value, float size) {
+        float fraction = value / size;
+        fraction = fraction < 0 ? 0 : (fraction > 1 ? 1 : fraction);
+        return (char) Math.round(fraction * COORDINATE_STEPS);
+    }
+
+    private static float fromSteps(char steps, float size) {
+        return steps * size / COORDINATE_STEPS;
+    }
+
+    //one pass: reads what the other player sent, rolls back if a prediction was wrong, then runs
+    //the next tick unless that would get too far ahead. Returns true if the world moved on a tick.
+    //Does nothing once the session is finished or the other player is lost.
+    public boolean tick() {
+        if (finished || peerLost)
+            return false;
+        ++passes;
+        if (receive())
+            lastHeardPass = passes;
+        else if (passes - lastHeardPass >= silenceLimit) {
+            peerLost = true;
+            return false;
+        }
+        long tick = world.getTick();
+
+        if (world.isGameOver()) {
+            //over for good once the other player's commands up to the end are in, and finished
+            //once they have ours too and have had a few chances to hear that
+            if (!agreed && remoteNext >= tick) {
+                agreed = true;
+                finalSends = FINAL_SENDS;
+            }
+            send();
+            if (agreed && remoteAck >= tick && --finalSends <= 0) {
+                finished = true;
+                if (forwarder.listener != null)
+                    forwarder.listener.onGameOver(forwarder.won);
+            }
+            return false;
+        }
+
+        if (tick - remoteNext >= maxPrediction) {
+            ++stalls;
+            send(); //the other player may be waiting on us as well
+            return false;
+        }
+
+        //this tick decides the local command inputDelay ticks ahead
+        int slot = (int) localNext & (HISTORY - 1);
+        flags[localPlayer][slot] = (byte) pendingFlags;
+        xs[localPlayer][slot] = pendingX;
+        ys[localPlayer][slot] = pendingY;
+        pendingFlags = 0;
+        ++localNext;
+        send();
+
+        if (tick >= remoteNext)
+            saved[(int) (tick % maxPrediction)].copyFrom(world);
+        step(tick);
+        ++ticksRun;
+        return true;
+    }
+
+    //applies both players' commands for the tick, the other player's only if they have arrived, and steps
+    private void step(long tick) {
+        int slot = (int) tick & (HISTORY - 1);
+        for (int player = 0; player < 2; ++player) {
+            if (player == remotePlayer && tick >= remoteNext)
+                continue; //predicted to do nothing
+            int command = flags[player][slot];
+            if (command == 0)
+                continue;
+            if ((command & TOGGLE_RAPID_FIRE) != 0)
+                world.setRapidFire(!world.isRapidFire());
+            float x = fromSteps(xs[player][slot], world.getWidth());
+            float y = fromSteps(ys[player][slot], world.getHeight());
+            if ((command & FIRE) != 0)
+                world.fire(player, x, y);
+            else if ((command & AIM) != 0)
+                world.aim(player, x, y);
+        }
+        world.step(tickSeconds);
+    }
+
+    //returns true if anything arrived
+    private boolean receive() {
+        boolean heard = false;
+        long mispredicted = Long.MAX_VALUE; //earliest tick that ran on a wrong prediction
+        while (peer.receive(packet)) {
+            heard = true;
+            try {
+                long tick = readPacket(world.getTick());
+                mispredicted = Math.min(mispredicted, tick);
+            } catch (BufferUnderflowException e) {
+                ++badPackets;
+            }
+        }
+        if (mispredicted < world.getTick())
+            rollBack(mispredicted);
+        return heard;
+    }
+
+    //takes in one datagram, returns the earliest tick before currentTick it showed a command
+    //for that wasn't predicted, or Long.MAX_VALUE
+    private long readPacket(long currentTick) {
+        if (packet.get() != PACKET_TYPE || packet.get() != remotePlayer) {
+            ++badPackets;
+            return Long.MAX_VALUE;
+        }
+        long ack = packet.getInt();
+        if (ack > remoteAck && ack <= localNext)
+            remoteAck = ack;
+        long first = packet.getInt();
+        int count = packet.get() & 0xff;
+        if (first > remoteNext)
+            return Long.MAX_VALUE; //a gap, the next datagram starts earlier
+
+        long mispredicted = Long.MAX_VALUE;
+        for (int i = 0; i < count; ++i) {
+            long tick = first + i;
+            int command = packet.get();
+            char x = 0;
+            char y = 0;
+            if ((command & (AIM | FIRE)) != 0) {
+                x = packet.getChar();
+                y = packet.getChar();
+            }
+            if (tick < remoteNext)
+                continue; //already have it
+            int slot = (int) tick & (HISTORY - 1);
+            flags[remotePlayer][slot] = (byte) command;
+            xs[remotePlayer][slot] = x;
+            ys[remotePlayer][slot] = y;
+            remoteNext = tick + 1;
+            if (command != 0 && tick < currentTick && tick < mispredicted)
+                mispredicted = tick;
+        }
+        return mispredicted;
+    }
+
+    //goes back to the state before the tick and plays the ticks since again, quietly
+    private void rollBack(long from) {
+        long start = System.nanoTime();
+        long to = world.getTick();
+        ParticleSystem particles = world.getParticles();
+        world.setParticles(null); //the sparks were shown the first time
+        forwarder.quiet = true;
+        try {
+            world.copyFrom(saved[(int) (from % maxPrediction)]);
+            for (long tick = from; tick < to && !world.isGameOver(); ++tick) {
+                if (tick >= remoteNext)
+                    saved[(int) (tick % maxPrediction)].copyFrom(world);
+                step(tick);
+            }
+        } finally {
+            forwarder.quiet = false;
+            world.setParticles(particles);
+        }
+        ++rollbacks;
+        resimulatedTicks += to - from;
+        longestRollback = Math.max(longestRollback, to - from);
+        rollbackNanos += System.nanoTime() - start;
+    }
+
+    private void send() {
+        packet.clear();
+        packet.put(PACKET_TYPE);
+        packet.put((byte) localPlayer);
+        packet.putInt((int) remoteNext);
+        int count = (int) Math.min(localNext - remoteAck, MAX_TICKS_PER_PACKET);
+        packet.putInt((int) remoteAck);
+        packet.put((byte) count);
+        for (int i = 0; i < count; ++i) {
+            int slot = (int) (remoteAck + i) & (HISTORY - 1);
+            int command = flags[localPlayer][slot];
+            packet.put((byte) command);
+            if ((command & (AIM | FIRE)) != 0) {
+                packet.putChar(xs[localPlayer][slot]);
+                packet.putChar(ys[localPlayer][slot]);
+            }
+        }
+        packet.flip();
+        peer.send(packet);
+    }
+
+    //true once the game is over, both players agree how it ended and the listener has heard it
+    public boolean isFinished() {
+        return finished;
+    }
+
+    //true once nothing has arrived from the other player for the silence limit; the session
+    //stops there and the game can't go on
+    public boolean isPeerLost() {
+        return peerLost;
+    }
+
+    //passes since a datagram last arrived
+    public long getSilentPasses() {
+        return passes - lastHeardPass;
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    public int getLocalPlayer() {
+        return localPlayer;
+    }
+
+    //the newest tick the other player's commands are all in for
+    public long getConfirmedTick() {
+        return remoteNext - 1;
+    }
+
+    public long getTicksRun() {
+        return ticksRun;
+    }
+
+    public long getStalls() {
+        return stalls;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    public long getLongestRollback() {
+        return longestRollback;
+    }
+
+    public long getRollbackNanos() {
+        return rollbackNanos;
+    }
+
+    public long getBadPackets() {
+        return badPackets;
+    }
+
+    //payload bytes sent per tick run
+    public double getBytesPerTick() {
+        return ticksRun == 0 ? 0 : (double) peer.getBytesSent() / ticksRun;
+    }
+
+    //bandwidth and rollback figures as text
+    public String dump() {
+        return String.format(Locale.US,
+                "player %d: %d ticks, %d stalls, %d packets, %.1f bytes/tick, %d bad packets, silent %d passes%n" +
+                        "rollbacks %d, %d ticks played again, longest %d, %.3f ms in all, %.1f us per tick",
+                localPlayer, ticksRun, stalls, peer.getPacketsSent(), getBytesPerTick(), badPackets, getSilentPasses(),
+                rollbacks, resimulatedTicks, longestRollback, rollbackNanos / 1e6,
+                resimulatedTicks == 0 ? 0 : rollbackNanos / 1e3 / resimulatedTicks);
+    }
+
+    //passes the world's events on unless the session is playing ticks again, and keeps game over
+    //back until the session knows it is final
+    private static class Forwarder implements GameWorld.Listener {
+        GameWorld.Listener listener;
+        boolean quiet;
+        boolean won;
+
+        @Override
+        public void onCannonFired() {
+            if (listener != null && !quiet)
+                listener.onCannonFired();
+        }
+
+        @Override
+        public void onBlockerHit() {
+            if (listener != null && !quiet)
+                listener.onBlockerHit();
+        }
+
+        @Override
+        public void onTargetHit(int section) {
+            if (listener != null && !quiet)
+                listener.onTargetHit(section);
+        }
+
+        @Override
+        public void onGameOver(boolean won) {
+            this.won = won;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.nabesh.cannongameapp.core;
+
+//short-lived sparks for hits, bounces and the muzzle flash, kept as packed parallel float arrays:
+//live particles are always slots 0 to count - 1, so updating them is one branch-free loop over
+//plain arrays and dead ones are swapped out afterwards. Bursts that don't fit are dropped.
+//Particles are only for show, nothing in the game depends on them.
+public class ParticleSystem {
+    public static final int TARGET_SPARK = 0;
+    public static final int BLOCKER_SPARK = 1;
+    public static final int MUZZLE_FLASH = 2;
+    public static final int KINDS = 3;
+
+    private static final float DRAG = 0.05f; //fraction of its speed a particle keeps after a second
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] previousX; //position at the previous tick, for drawing streaks
+    private final float[] previousY;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private final float[] life; //seconds left
+    private final byte[] kind;
+    private int count;
+    private long dropped;
+    private long seed = 0x2545F4914F6CDD1DL; //xorshift state, particles need no better randomness
+
+    public ParticleSystem(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        previousX = new float[capacity];
+        previousY = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        life = new float[capacity];
+        kind = new byte[capacity];
+    }
+
+    //sends up to count particles of a kind out from (fromX, fromY) within spread radians either side
+    //of the direction (directionX, directionY), or every way if that is 0, at up to speed per second
+    public void burst(int particleKind, int count, float fromX, float fromY, float directionX, float directionY,
+                      float spread, float speed, float lifeSeconds) {
+        int room = x.length - this.count;
+        if (count > room) {
+            dropped += count - room;
+            count = room;
+        }
+        float baseAngle = directionX == 0 && directionY == 0 ? 0 : (float) Math.atan2(directionY, directionX);
+        if (directionX == 0 && directionY == 0)
+            spread = (float) Math.PI;
+        for (int k = 0; k < count; ++k) {
+            int i = this.count++;
+            float angle = baseAngle + spread * (2 * nextFloat() - 1);
+            float particleSpeed = speed * (0.3f + 0.7f * nextFloat());
+            x[i] = previousX[i] = fromX;
+            y[i] = previousY[i] = fromY;
+            velocityX[i] = (float) Math.cos(angle) * particleSpeed;
+            velocityY[i] = (float) Math.sin(angle) * particleSpeed;
+            life[i] = lifeSeconds * (0.5f + 0.5f * nextFloat());
+            kind[i] = (byte) particleKind;
+        }
+    }
+
+    //moves every particle on by interval seconds and removes the ones that burnt out
+    public void update(float interval) {
+        final int n = count;
+        if (n == 0)
+            return;
+        final float[] x = this.x, y = this.y, velocityX = this.velocityX, velocityY = this.velocityY;
+        final float[] previousX = this.previousX, previousY = this.previousY, life = this.life;
+        final float damping = (float) Math.pow(DRAG, interval);
+
+        //the same arithmetic for every slot, no branches
+        for (int i = 0; i < n; ++i) {
+            previousX[i] = x[i];
+            previousY[i] = y[i];
+            x[i] += velocityX[i] * interval;
+            y[i] += velocityY[i] * interval;
+            velocityX[i] *= damping;
+            velocityY[i] *= damping;
+            life[i] -= interval;
+        }
+
+        //swap the last live particle into each dead slot
+        int live = n;
+        for (int i = 0; i < live; ) {
+            if (life[i] > 0) {
+                ++i;
+                continue;
+            }
+            int last = --live;
+            x[i] = x[last];
+            y[i] = y[last];
+            previousX[i] = previousX[last];
+            previousY[i] = previousY[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            life[i] = life[last];
+            kind[i] = kind[last];
+        }
+        count = live;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    //particles that didn't fit since the system was made
+    public long getDropped() {
+        return dropped;
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getPreviousX(int i) {
+        return previousX[i];
+    }
+
+    public float getPreviousY(int i) {
+        return previousY[i];
+    }
+
+    public int getKind(int i) {
+        return kind[i];
+    }
+
+    public float getLife(int i) {
+        return life[i];
+    }
+
+    //uniform in [0, 1)
+    private float nextFloat() {
+        long s = seed;
+        s ^= s << 13;
+        s ^= s >>> 7;
+        s ^= s << 17;
+        seed = s;
+        return (s >>> 40) / (float) (1 << 24);
+    }
+}
@@ -0,0 +1,254 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+//steps the game's quality down when the device can't keep up and back up when it has room again.
+//It is fed the load of each simulation pass, the share of a core the game needed for it, and decides
+//once per window of samples: a window over the step down load drops a level straight away, but
+//stepping up takes several calm windows in a row, twice as many after each step up that had to be
+//taken back, so a device on the edge settles instead of flipping between two levels.
+//Sampled on one thread, any thread may read the level and the decisions.
+public class QualityGovernor {
+
+    //what the game draws and simulates at one level of quality
+    public static final class Level {
+        private final boolean antiAlias; //for the HUD text
+        private final int particleBudget; //most particles drawn in a frame
+        private final int cannonballLimit; //most cannonballs in flight in rapid fire
+        private final float resolutionScale; //surface pixels per view pixel
+        private final int tickRate; //simulation ticks per second
+
+        public Level(boolean antiAlias, int particleBudget, int cannonballLimit, float resolutionScale, int tickRate) {
+            if (!(resolutionScale > 0 && resolutionScale <= 1))
+                throw new IllegalArgumentException("resolution scale must be in (0, 1]: " + resolutionScale);
+            if (tickRate <= 0)
+                throw new IllegalArgumentException("tick rate must be positive: " + tickRate);
+            this.antiAlias = antiAlias;
+            this.particleBudget = particleBudget;
+            this.cannonballLimit = cannonballLimit;
+            this.resolutionScale = resolutionScale;
+            this.tickRate = tickRate;
+        }
+
+        public boolean isAntiAlias() {
+            return antiAlias;
+        }
+
+        public int getParticleBudget() {
+            return particleBudget;
+        }
+
+        public int getCannonballLimit() {
+            return cannonballLimit;
+        }
+
+        public float getResolutionScale() {
+            return resolutionScale;
+        }
+
+        public int getTickRate() {
+            return tickRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "aa=%b particles=%d balls=%d resolution=%.2f ticks=%d",
+                    antiAlias, particleBudget, cannonballLimit, resolutionScale, tickRate);
+        }
+    }
+
+    //one change of level, with the window load that caused it
+    public static final class Decision {
+        private final long timeNanos;
+        private final int from;
+        private final int to;
+        private final float load;
+
+        Decision(long timeNanos, int from, int to, float load) {
+            this.timeNanos = timeNanos;
+            this.from = from;
+            this.to = to;
+            this.load = load;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+
+        public float getLoad() {
+            return load;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %d -> %d at load %.2f", to > from ? "down" : "up", from, to, load);
+        }
+    }
+
+    //told on the sampling thread whenever the level changes
+    public interface Listener {
+        void onQualityChanged(Level level, Decision decision);
+    }
+
+    //best first; the last level draws no particles and simulates at half the rate
+    public static final Level[] DEFAULT_LEVELS = {
+            new Level(true, 4096, GameWorld.DEFAULT_CANNONBALL_CAPACITY, 1f, 60),
+            new Level(false, 1024, GameWorld.DEFAULT_CANNONBALL_CAPACITY, 1f, 60),
+            new Level(false, 256, 32, 0.75f, 60),
+            new Level(false, 0, 8, 0.5f, 30),
+    };
+
+    private static final int MAX_DECISIONS = 32; //the log keeps the newest ones
+    private static final int MAX_CALM_WINDOWS = 64;
+
+    private final Level[] levels;
+    private final int windowSamples;
+    private final float stepDownLoad;
+    private final float stepUpLoad;
+    private final int baseCalmWindows;
+    private Listener listener;
+
+    private volatile int level;
+    private int calmWindowsNeeded; //calm windows in a row before stepping up
+    private int calmWindows;
+    private boolean steppedUp; //the last change was a step up, undone if the next window is over
+    private boolean settling; //the window after a change is thrown away
+    private int samples;
+    private double loadSum;
+    private long decisionCount;
+    private final Decision[] decisions = new Decision[MAX_DECISIONS];
+
+    public QualityGovernor() {
+        this(DEFAULT_LEVELS, 60, 0.85f, 0.5f, 3);
+    }
+
+    public QualityGovernor(Level[] levels, int windowSamples, float stepDownLoad, float stepUpLoad, int calmWindows) {
+        if (levels.length == 0)
+            throw new IllegalArgumentException("no levels");
+        if (windowSamples <= 0 || calmWindows <= 0)
+            throw new IllegalArgumentException("window samples and calm windows must be positive");
+        if (!(stepUpLoad < stepDownLoad))
+            throw new IllegalArgumentException("step up load must be below step down load: " + stepUpLoad +
+                    " " + stepDownLoad);
+        this.levels = levels.clone();
+        this.windowSamples = windowSamples;
+        this.stepDownLoad = stepDownLoad;
+        this.stepUpLoad = stepUpLoad;
+        this.baseCalmWindows = calmWindows;
+        calmWindowsNeeded = calmWindows;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    //records the load of one pass, 1 meaning it took all of one core; returns true if the level changed
+    public boolean sample(long timeNanos, float load) {
+        loadSum += load;
+        if (++samples < windowSamples)
+            return false;
+        float average = (float) (loadSum / samples);
+        samples = 0;
+        loadSum = 0;
+        if (settling) {
+            settling = false;
+            return false;
+        }
+
+        if (average > stepDownLoad) {
+            calmWindows = 0;
+            if (steppedUp) //the step up was too far, wait longer before the next one
+                calmWindowsNeeded = Math.min(calmWindowsNeeded * 2, MAX_CALM_WINDOWS);
+            steppedUp = false;
+            return change(timeNanos, level + 1, average);
+        }
+        steppedUp = false;
+        if (average < stepUpLoad) {
+            if (++calmWindows >= calmWindowsNeeded) {
+                calmWindows = 0;
+                boolean changed = change(timeNanos, level - 1, average);
+                steppedUp = changed;
+                return changed;
+            }
+        } else {
+            calmWindows = 0;
+        }
+        return false;
+    }
+
+    private boolean change(long timeNanos, int to, float load) {
+        if (to < 0 || to >= levels.length)
+            return false;
+        Decision decision = new Decision(timeNanos, level, to, load);
+        synchronized (decisions) {
+            decisions[(int) (decisionCount++ % MAX_DECISIONS)] = decision;
+        }
+        level = to;
+        settling = true;
+        if (listener != null)
+            listener.onQualityChanged(levels[to], decision);
+        return true;
+    }
+
+    //back to the best level with no history, only from the sampling thread or while it is stopped
+    public void reset() {
+        level = 0;
+        calmWindowsNeeded = baseCalmWindows;
+        calmWindows = 0;
+        steppedUp = false;
+        settling = false;
+        samples = 0;
+        loadSum = 0;
+        synchronized (decisions) {
+            decisionCount = 0;
+        }
+    }
+
+    //0 is the best
+    public int getLevelIndex() {
+        return level;
+    }
+
+    public Level getLevel() {
+        return levels[level];
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    //calm windows currently needed before a step up
+    public int getCalmWindowsNeeded() {
+        return calmWindowsNeeded;
+    }
+
+    //the newest decisions, oldest first
+    public List<Decision> getDecisions() {
+        synchronized (decisions) {
+            int kept = (int) Math.min(decisionCount, MAX_DECISIONS);
+            List<Decision> list = new ArrayList<Decision>(kept);
+            for (long i = decisionCount - kept; i < decisionCount; ++i)
+                list.add(decisions[(int) (i % MAX_DECISIONS)]);
+            return list;
+        }
+    }
+
+    //the level and the decision log as text
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("quality ").append(level).append(" (").append(getLevel()).append(")");
+        for (Decision decision : getDecisions())
+            builder.append('\n').append("  ").append(decision);
+        return builder.toString();
+    }
+}
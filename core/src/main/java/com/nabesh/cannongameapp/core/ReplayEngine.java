@@ -0,0 +1,128 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.Arrays;
+
+//plays the game recorded in an InputJournal again without a screen or a clock, stepping
+//the world as fast as it can. Replaying the same journal always gives the same Result.
+public class ReplayEngine {
+    public static final int BLOCKER_HIT = -1; //entry in the hit order for a blocker hit
+
+    private final GameWorld world;
+
+    public ReplayEngine() {
+        this(GameWorld.DEFAULT_CANNONBALL_CAPACITY);
+    }
+
+    public ReplayEngine(int cannonballCapacity) {
+        world = new GameWorld(cannonballCapacity);
+    }
+
+    //the outcome of a game
+    public static class Result {
+        public final boolean won;
+        public final int shotsFired;
+        public final double totalTimeElapsed;
+        public final long ticks;
+        private final int[] hits; //target sections hit, or BLOCKER_HIT, in the order they happened
+
+        Result(boolean won, int shotsFired, double totalTimeElapsed, long ticks, int[] hits) {
+            this.won = won;
+            this.shotsFired = shotsFired;
+            this.totalTimeElapsed = totalTimeElapsed;
+            this.ticks = ticks;
+            this.hits = hits;
+        }
+
+        public int[] getHits() {
+            return hits.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Result))
+                return false;
+            Result other = (Result) o;
+            return won == other.won && shotsFired == other.shotsFired &&
+                    Double.compare(totalTimeElapsed, other.totalTimeElapsed) == 0 &&
+                    ticks == other.ticks && Arrays.equals(hits, other.hits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(hits) * 31 + shotsFired;
+        }
+
+        @Override
+        public String toString() {
+            return (won ? "won" : "lost") + " after " + ticks + " ticks, " + shotsFired + " shots, " +
+                    totalTimeElapsed + "s, hits " + Arrays.toString(hits);
+        }
+    }
+
+    //replays the journal until the game is over
+    public Result run(InputJournal journal) {
+        Recorder recorder = new Recorder();
+        world.setListener(recorder);
+        world.setSize(journal.getWidth(), journal.getHeight());
+        journal.applyLevelTo(world);
+        world.setCannonballLimit(journal.getCannonballLimit());
+        world.setRapidFire(journal.isRapidFire());
+        world.newGame();
+
+        double tickSeconds = journal.getTickSeconds();
+        int next = 0;
+        while (!world.isGameOver()) {
+            //commands recorded against this tick go in before it runs, as they did live
+            while (next < journal.size() && journal.getTick(next) == world.getTick()) {
+                CommandQueue.apply(world, journal.getType(next), journal.getX(next), journal.getY(next));
+                ++next;
+            }
+            world.step(tickSeconds);
+        }
+        world.setListener(null);
+        return recorder.result(world);
+    }
+
+    //the world this engine replays into, for inspecting the final state
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    //collects the outcome of a game from the world's events
+    public static class Recorder implements GameWorld.Listener {
+        private int[] hits = new int[64];
+        private int hitCount;
+        private boolean won;
+
+        @Override
+        public void onCannonFired() {
+        }
+
+        @Override
+        public void onBlockerHit() {
+            addHit(BLOCKER_HIT);
+        }
+
+        @Override
+        public void onTargetHit(int section) {
+            addHit(section);
+        }
+
+        @Override
+        public void onGameOver(boolean won) {
+            this.won = won;
+        }
+
+        private void addHit(int hit) {
+            if (hitCount == hits.length)
+                hits = Arrays.copyOf(hits, hitCount * 2);
+            hits[hitCount++] = hit;
+        }
+
+        //the outcome so far of the game the world is playing
+        public Result result(GameWorld world) {
+            return new Result(won, world.getShotsFired(), world.getTotalTimeElapsed(), world.getTick(),
+                    Arrays.copyOf(hits, hitCount));
+        }
+    }
+}
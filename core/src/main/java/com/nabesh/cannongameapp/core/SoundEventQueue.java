@@ -0,0 +1,98 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//a lock-free single-producer/single-consumer ring of sound events, the simulation thread posts
+//them without blocking and an audio thread takes them, sleeping while there are none. Events are
+//small ints naming a sound; when the ring is full new events are dropped and counted.
+public class SoundEventQueue {
+    private final int[] sounds;
+    private final float[] volumes;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); //next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); //next slot to write, written by the producer
+    private long cachedHead; //the producer's last look at head
+    private volatile Thread waiter; //the consumer while it is parked waiting for events
+    private volatile long dropped;
+
+    private int takenSound; //the last event take() returned
+    private float takenVolume;
+
+    //capacity is rounded up to a power of two
+    public SoundEventQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        sounds = new int[size];
+        volumes = new float[size];
+        mask = size - 1;
+    }
+
+    //posts a sound at the given volume, returns false if the ring is full; producer thread only
+    public boolean post(int sound, float volume) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                ++dropped;
+                return false;
+            }
+        }
+        int i = (int) t & mask;
+        sounds[i] = sound;
+        volumes[i] = volume;
+        //a full volatile write, so the consumer either sees the event or is seen waiting
+        tail.set(t + 1);
+
+        Thread consumer = waiter;
+        if (consumer != null)
+            LockSupport.unpark(consumer);
+        return true;
+    }
+
+    //takes the next event if there is one, its sound and volume are then in getSound()/getVolume();
+    //consumer thread only
+    public boolean poll() {
+        long h = head.get();
+        if (h == tail.get())
+            return false;
+        int i = (int) h & mask;
+        takenSound = sounds[i];
+        takenVolume = volumes[i];
+        head.lazySet(h + 1); //hands the slot back to the producer
+        return true;
+    }
+
+    //like poll() but waits up to timeoutNanos for an event, returns false if none came or the
+    //thread is interrupted, leaving its interrupt status set; consumer thread only
+    public boolean take(long timeoutNanos) {
+        if (poll())
+            return true;
+        long deadline = System.nanoTime() + timeoutNanos;
+        waiter = Thread.currentThread();
+        try {
+            while (!poll()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted())
+                    return false;
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    public int getSound() {
+        return takenSound;
+    }
+
+    public float getVolume() {
+        return takenVolume;
+    }
+
+    //events lost because the ring was full
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,92 @@
+package com.nabesh.cannongameapp.core;
+
+//continuous collision tests between a moving circle and a line segment
+final class SweptCollision {
+    static final float NO_HIT = Float.POSITIVE_INFINITY;
+
+    private SweptCollision() {
+    }
+
+    //earliest time in [0, maxTime] at which a circle of the given radius at (x, y) moving with
+    //velocity (vx, vy) touches the segment from (ax, ay) to (bx, by), or NO_HIT. A circle that
+    //already touches the segment hits at time 0 only while it is moving towards it.
+    static float timeOfImpact(float x, float y, float vx, float vy, float radius,
+                              float ax, float ay, float bx, float by, float maxTime) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float lengthSquared = dx * dx + dy * dy;
+
+        //already touching
+        float s = lengthSquared == 0 ? 0 : clamp01(((x - ax) * dx + (y - ay) * dy) / lengthSquared);
+        float offsetX = x - (ax + s * dx);
+        float offsetY = y - (ay + s * dy);
+        if (offsetX * offsetX + offsetY * offsetY <= radius * radius)
+            return offsetX * vx + offsetY * vy < 0 ? 0 : NO_HIT;
+
+        float best = NO_HIT;
+        if (lengthSquared > 0) {
+            //the flat sides of the capsule around the segment
+            float length = (float) Math.sqrt(lengthSquared);
+            float normalX = -dy / length;
+            float normalY = dx / length;
+            float distance = (x - ax) * normalX + (y - ay) * normalY;
+            float closing = vx * normalX + vy * normalY;
+            if (distance < 0) {
+                distance = -distance;
+                closing = -closing;
+            }
+            if (closing < 0) {
+                float t = (distance - radius) / -closing;
+                if (t >= 0 && t <= maxTime) {
+                    float along = ((x + vx * t - ax) * dx + (y + vy * t - ay) * dy) / lengthSquared;
+                    if (along >= 0 && along <= 1)
+                        best = t;
+                }
+            }
+        }
+
+        //the round caps at either end
+        best = Math.min(best, timeOfImpactWithPoint(x, y, vx, vy, radius, ax, ay, maxTime));
+        best = Math.min(best, timeOfImpactWithPoint(x, y, vx, vy, radius, bx, by, maxTime));
+        return best;
+    }
+
+    //earliest time in [0, maxTime] at which the moving circle touches the point (px, py), or NO_HIT
+    static float timeOfImpactWithPoint(float x, float y, float vx, float vy, float radius,
+                                       float px, float py, float maxTime) {
+        float offsetX = x - px;
+        float offsetY = y - py;
+        float a = vx * vx + vy * vy;
+        float b = 2 * (offsetX * vx + offsetY * vy);
+        float c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+        if (a == 0 || b >= 0)
+            return NO_HIT; //not moving, or moving away
+        float discriminant = b * b - 4 * a * c;
+        if (discriminant < 0)
+            return NO_HIT;
+        float t = (-b - (float) Math.sqrt(discriminant)) / (2 * a);
+        return t >= 0 && t <= maxTime ? t : NO_HIT;
+    }
+
+    //earliest time in [0, maxTime] at which the moving circle's edge reaches a wall of the
+    //width by height box, or NO_HIT
+    static float timeOfImpactWithWalls(float x, float y, float vx, float vy, float radius,
+                                       float width, float height, float maxTime) {
+        float t = NO_HIT;
+        if (vx > 0)
+            t = Math.min(t, (width - radius - x) / vx);
+        else if (vx < 0)
+            t = Math.min(t, (x - radius) / -vx);
+        if (vy > 0)
+            t = Math.min(t, (height - radius - y) / vy);
+        else if (vy < 0)
+            t = Math.min(t, (y - radius) / -vy);
+        if (t < 0)
+            t = 0;
+        return t <= maxTime ? t : NO_HIT;
+    }
+
+    private static float clamp01(float value) {
+        return value < 0 ? 0 : (value > 1 ? 1 : value);
+    }
+}
@@ -0,0 +1,39 @@
+package com.nabesh.cannongameapp.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//hands the latest of a stream of values from one writer thread to one reader thread
+//without locks: the writer fills the back buffer and publishes it, the reader picks up
+//the newest published buffer and keeps it until it asks again
+public class TripleBuffer<T> {
+    private static final int FRESH = 4; //set on the middle index when it holds an unread buffer
+    private static final int INDEX = 3;
+
+    private final Object[] buffers;
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int back = 0; //writer thread only
+    private int front = 1; //reader thread only
+
+    public TripleBuffer(T first, T second, T third) {
+        buffers = new Object[]{first, second, third};
+    }
+
+    //the buffer the writer fills next
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) buffers[back];
+    }
+
+    //makes the back buffer the newest one and takes a free buffer to write next
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    //the newest published buffer; it stays untouched by the writer until the next acquire
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+        return (T) buffers[front];
+    }
+}
@@ -0,0 +1,148 @@
+package com.nabesh.cannongameapp.core;
+
+//broad phase for collisions: a uniform grid of cells over the world, each
+//listing the obstacles whose bounding box touches it. Obstacles are only
+//re-binned when the range of cells they cover changes.
+public class UniformGrid {
+    private final int capacity; //most obstacles the grid can index
+
+    private float cellSize;
+    private int columns;
+    private int rows;
+
+    //obstacle ids per cell, cell c owns cellItems[c * capacity .. c * capacity + cellCounts[c])
+    private int[] cellItems;
+    private int[] cellCounts;
+
+    //cell range each obstacle currently covers, empty when minColumn > maxColumn
+    private final int[] minColumn;
+    private final int[] maxColumn;
+    private final int[] minRow;
+    private final int[] maxRow;
+
+    //per-obstacle query stamps so an obstacle in several cells is reported once
+    private final int[] stamps;
+    private int queryStamp;
+
+    public UniformGrid(int capacity) {
+        this.capacity = capacity;
+        minColumn = new int[capacity];
+        maxColumn = new int[capacity];
+        minRow = new int[capacity];
+        maxRow = new int[capacity];
+        stamps = new int[capacity];
+        resize(1, 1, 1);
+    }
+
+    //lays the grid over a world of the given size, removing every obstacle
+    public void resize(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = columns * rows;
+        if (cellCounts == null || cellCounts.length < cells) {
+            cellCounts = new int[cells];
+            cellItems = new int[cells * capacity];
+        }
+        clear();
+    }
+
+    //true if resize with these arguments would give the same cells, so the obstacles can stay
+    public boolean isLaidOver(float width, float height, float cellSize) {
+        return cellSize == this.cellSize && Math.max(1, (int) Math.ceil(width / cellSize)) == columns &&
+                Math.max(1, (int) Math.ceil(height / cellSize)) == rows;
+    }
+
+    public void clear() {
+        for (int c = 0; c < cellCounts.length; ++c)
+            cellCounts[c] = 0;
+        for (int id = 0; id < capacity; ++id) {
+            minColumn[id] = 0;
+            maxColumn[id] = -1;
+        }
+    }
+
+    //moves obstacle id to the cells covering the given box, doing nothing if they are unchanged
+    public void update(int id, float left, float top, float right, float bottom) {
+        int newMinColumn = column(left);
+        int newMaxColumn = column(right);
+        int newMinRow = row(top);
+        int newMaxRow = row(bottom);
+        if (newMinColumn == minColumn[id] && newMaxColumn == maxColumn[id] &&
+                newMinRow == minRow[id] && newMaxRow == maxRow[id])
+            return;
+
+        remove(id);
+        for (int r = newMinRow; r <= newMaxRow; ++r) {
+            for (int c = newMinColumn; c <= newMaxColumn; ++c) {
+                int cell = r * columns + c;
+                cellItems[cell * capacity + cellCounts[cell]++] = id;
+            }
+        }
+        minColumn[id] = newMinColumn;
+        maxColumn[id] = newMaxColumn;
+        minRow[id] = newMinRow;
+        maxRow[id] = newMaxRow;
+    }
+
+    //takes obstacle id out of every cell
+    public void remove(int id) {
+        for (int r = minRow[id]; r <= maxRow[id]; ++r) {
+            for (int c = minColumn[id]; c <= maxColumn[id]; ++c) {
+                int cell = r * columns + c;
+                int base = cell * capacity;
+                int count = cellCounts[cell];
+                for (int k = 0; k < count; ++k) {
+                    if (cellItems[base + k] == id) {
+                        cellItems[base + k] = cellItems[base + count - 1];
+                        cellCounts[cell] = count - 1;
+                        break;
+                    }
+                }
+            }
+        }
+        minColumn[id] = 0;
+        maxColumn[id] = -1;
+    }
+
+    //writes the ids of obstacles that may overlap the given box into out and returns how many
+    public int query(float left, float top, float right, float bottom, int[] out) {
+        if (++queryStamp == 0) { //wrapped around, forget the old stamps
+            for (int id = 0; id < capacity; ++id)
+                stamps[id] = 0;
+            queryStamp = 1;
+        }
+
+        int found = 0;
+        int lastColumn = column(right);
+        int lastRow = row(bottom);
+        for (int r = row(top); r <= lastRow; ++r) {
+            for (int c = column(left); c <= lastColumn; ++c) {
+                int cell = r * columns + c;
+                int base = cell * capacity;
+                for (int k = 0, count = cellCounts[cell]; k < count; ++k) {
+                    int id = cellItems[base + k];
+                    if (stamps[id] != queryStamp) {
+                        stamps[id] = queryStamp;
+                        out[found++] = id;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int column(float x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    private int row(float y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
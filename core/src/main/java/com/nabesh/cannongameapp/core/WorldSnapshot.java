@@ -0,0 +1,157 @@
+package com.nabesh.cannongameapp.core;
+
+//a copy of everything needed to draw a GameWorld at one tick, filled by the
+//simulation thread and read by the render thread; sized once, so copying allocates nothing
+public class WorldSnapshot {
+    public long tick;
+    public long timeNanos; //System.nanoTime() when the tick finished
+    public long tickNanos; //length of a tick, for interpolating towards the next one
+    public boolean last; //the simulation stopped after this tick, nothing newer comes until a new game
+
+    public double timeLeft;
+    public boolean gameOver;
+    public float width;
+    public float height;
+
+    //the cannons, one per player
+    public int cannonCount;
+    public final float[] cannonY = new float[GameWorld.MAX_PLAYERS];
+    public final float[] barrelEndX = new float[GameWorld.MAX_PLAYERS];
+    public final float[] barrelEndY = new float[GameWorld.MAX_PLAYERS];
+    public float cannonBaseRadius;
+
+    //the live cannonballs, packed together, with their positions at the previous tick
+    public float cannonballRadius;
+    public int cannonballCount;
+    public final float[] cannonballX;
+    public final float[] cannonballY;
+    public final float[] previousCannonballX;
+    public final float[] previousCannonballY;
+
+    //the blockers and targets
+    public int lineCount;
+    public final int[] lineType = new int[GameWorld.MAX_LINES];
+    public final int[] linePieces = new int[GameWorld.MAX_LINES];
+    public final int[] lineHitMask = new int[GameWorld.MAX_LINES];
+    public final float[] lineStartX = new float[GameWorld.MAX_LINES];
+    public final float[] lineStartY = new float[GameWorld.MAX_LINES];
+    public final float[] lineEndX = new float[GameWorld.MAX_LINES];
+    public final float[] lineEndY = new float[GameWorld.MAX_LINES];
+    public final float[] previousLineStartX = new float[GameWorld.MAX_LINES];
+    public final float[] previousLineStartY = new float[GameWorld.MAX_LINES];
+
+    //the particles grouped by kind as streaks, four floats each: the previous position then the current one.
+    //Kind k is particleCount[k] streaks from particleStart[k], all of them lie within the particle bounds.
+    public final float[] particleStreaks;
+    public final int[] particleStart = new int[ParticleSystem.KINDS];
+    public final int[] particleCount = new int[ParticleSystem.KINDS];
+    public int particleTotal;
+    public float particleMinX;
+    public float particleMinY;
+    public float particleMaxX;
+    public float particleMaxY;
+
+    public WorldSnapshot(int cannonballCapacity) {
+        this(cannonballCapacity, 0);
+    }
+
+    public WorldSnapshot(int cannonballCapacity, int particleCapacity) {
+        cannonballX = new float[cannonballCapacity];
+        cannonballY = new float[cannonballCapacity];
+        previousCannonballX = new float[cannonballCapacity];
+        previousCannonballY = new float[cannonballCapacity];
+        particleStreaks = new float[particleCapacity * 4];
+    }
+
+    public void copyFrom(GameWorld world) {
+        tick = world.getTick();
+        timeLeft = world.getTimeLeft();
+        gameOver = world.isGameOver();
+        width = world.getWidth();
+        height = world.getHeight();
+        cannonCount = world.getPlayers();
+        for (int p = 0; p < cannonCount; ++p) {
+            cannonY[p] = world.getCannonY(p);
+            barrelEndX[p] = world.getBarrelEndX(p);
+            barrelEndY[p] = world.getBarrelEndY(p);
+        }
+        cannonBaseRadius = world.getCannonBaseRadius();
+        cannonballRadius = world.getCannonballRadius();
+
+        CannonballPool cannonballs = world.getCannonballs();
+        int count = 0;
+        for (int i = 0, n = Math.min(cannonballs.highWater(), cannonballX.length); i < n; ++i) {
+            if (cannonballs.isAlive(i)) {
+                cannonballX[count] = cannonballs.getX(i);
+                cannonballY[count] = cannonballs.getY(i);
+                previousCannonballX[count] = cannonballs.getPreviousX(i);
+                previousCannonballY[count] = cannonballs.getPreviousY(i);
+                ++count;
+            }
+        }
+        cannonballCount = count;
+
+        lineCount = world.getLineCount();
+        for (int i = 0; i < lineCount; ++i) {
+            Line line = world.getLine(i);
+            lineType[i] = line.type;
+            linePieces[i] = line.pieces;
+            lineHitMask[i] = line.hitMask;
+            lineStartX[i] = line.startX;
+            lineStartY[i] = line.startY;
+            lineEndX[i] = line.endX;
+            lineEndY[i] = line.endY;
+            previousLineStartX[i] = line.previousStartX;
+            previousLineStartY[i] = line.previousStartY;
+        }
+
+        copyParticles(world.getParticles());
+    }
+
+    //sorts the particles by kind into streaks so each kind can be drawn with one call
+    private void copyParticles(ParticleSystem particles) {
+        int n = particles == null ? 0 : Math.min(particles.count(), particleStreaks.length / 4);
+        for (int k = 0; k < ParticleSystem.KINDS; ++k)
+            particleCount[k] = 0;
+        for (int i = 0; i < n; ++i)
+            ++particleCount[particles.getKind(i)];
+        int start = 0;
+        for (int k = 0; k < ParticleSystem.KINDS; ++k) {
+            particleStart[k] = start;
+            start += particleCount[k];
+        }
+        particleTotal = n;
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        int[] next = particleCount; //counts down to 0 while placing, rebuilt below
+        for (int i = 0; i < n; ++i) {
+            int k = particles.getKind(i);
+            int at = (particleStart[k] + --next[k]) * 4;
+            float x0 = particles.getPreviousX(i), y0 = particles.getPreviousY(i);
+            float x1 = particles.getX(i), y1 = particles.getY(i);
+            particleStreaks[at] = x0;
+            particleStreaks[at + 1] = y0;
+            particleStreaks[at + 2] = x1;
+            particleStreaks[at + 3] = y1;
+            minX = Math.min(minX, Math.min(x0, x1));
+            minY = Math.min(minY, Math.min(y0, y1));
+            maxX = Math.max(maxX, Math.max(x0, x1));
+            maxY = Math.max(maxY, Math.max(y0, y1));
+        }
+        for (int k = 0; k < ParticleSystem.KINDS; ++k)
+            particleCount[k] = (k + 1 < ParticleSystem.KINDS ? particleStart[k + 1] : n) - particleStart[k];
+        particleMinX = minX;
+        particleMinY = minY;
+        particleMaxX = maxX;
+        particleMaxY = maxY;
+    }
+
+    //how far between this tick and the next the given time is, from 0 to 1
+    public float alphaAt(long nowNanos) {
+        if (tickNanos <= 0)
+            return 1;
+        float alpha = (float) (nowNanos - timeNanos) / tickNanos;
+        return alpha < 0 ? 0 : (alpha > 1 ? 1 : alpha);
+    }
+}
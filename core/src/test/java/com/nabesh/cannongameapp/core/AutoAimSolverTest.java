@@ -0,0 +1,77 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class AutoAimSolverTest {
+    private static final double TICK = 1 / 60.0;
+
+    private static GameWorld newWorld() {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.newGame();
+        return world;
+    }
+
+    //fires the solver's shot at the tick it asked for and reports whether it hit a target
+    private static boolean playShot(GameWorld world, AutoAimSolver.Shot shot) {
+        final boolean[] hit = new boolean[1];
+        world.setListener(new GameWorldTest.IgnoringListener() {
+            @Override
+            public void onTargetHit(int section) {
+                hit[0] = true;
+            }
+        });
+        for (int i = 0; i < shot.delayTicks; ++i)
+            world.step(TICK);
+        assertTrue(world.fire(shot.aimX, shot.aimY));
+        while (world.isCannonballOnScreen() && !hit[0])
+            world.step(TICK);
+        return hit[0];
+    }
+
+    @Test
+    public void sequentialShotHitsTheTarget() {
+        GameWorld world = newWorld();
+        AutoAimSolver solver = new AutoAimSolver(null, 64, 8);
+        AutoAimSolver.Shot shot = solver.solve(world, TICK, Long.MAX_VALUE);
+
+        assertTrue(shot.hitsTarget);
+        assertEquals(solver.getCandidateCount(), shot.evaluated);
+        //solving leaves the world alone
+        assertEquals(0, world.getTick());
+        assertEquals(0, world.getShotsFired());
+        assertTrue(playShot(world, shot));
+    }
+
+    @Test
+    public void parallelSearchAgreesWithSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GameWorld world = newWorld();
+            for (int i = 0; i < 40; ++i)
+                world.step(TICK);
+
+            AutoAimSolver.Shot sequential = new AutoAimSolver(null, 96, 16).solve(world, TICK, Long.MAX_VALUE);
+            AutoAimSolver parallelSolver = new AutoAimSolver(pool, 96, 16);
+            for (int i = 0; i < 3; ++i) {
+                AutoAimSolver.Shot parallel = parallelSolver.solve(world, TICK, Long.MAX_VALUE);
+                assertEquals(sequential.angle, parallel.angle, 0);
+                assertEquals(sequential.delayTicks, parallel.delayTicks);
+            }
+            assertTrue(playShot(world, sequential));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void exhaustedBudgetEvaluatesNothing() {
+        AutoAimSolver.Shot shot = new AutoAimSolver(null, 16, 4).solve(newWorld(), TICK, 0);
+        assertEquals(0, shot.evaluated);
+        assertFalse(shot.hitsTarget);
+    }
+}
@@ -0,0 +1,80 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchSimulatorTest {
+    private static final double TICK = 1 / 60.0;
+
+    private static String[] runCsv(int threads, int player, List<GameRules> rules, int games)
+            throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        BatchSimulator simulator = new BatchSimulator(threads, TICK, 1, 16 / 9f);
+        BatchSimulator.Summary[] summaries = simulator.run(rules, games, player, 42,
+                BatchSimulator.RecordWriter.csv(out));
+        assertEquals(rules.size(), summaries.length);
+        for (BatchSimulator.Summary summary : summaries)
+            assertEquals(games, summary.getGames());
+
+        //games finish in any order, sort the records after the header
+        String[] lines = out.toString().split("\n");
+        Arrays.sort(lines, 1, lines.length);
+        return lines;
+    }
+
+    @Test
+    public void recordsDoNotDependOnTheThreadCount() throws IOException, InterruptedException {
+        List<GameRules> rules = Arrays.asList(GameRules.DEFAULT, GameRules.DEFAULT.withMissPenalty(0.5));
+        String[] single = runCsv(1, BatchSimulator.SCRIPTED, rules, 12);
+        String[] parallel = runCsv(4, BatchSimulator.SCRIPTED, rules, 12);
+
+        assertEquals(1 + 24, single.length);
+        assertTrue(single[0].startsWith("game,seed,missPenalty"));
+        assertArrayEquals(single, parallel);
+        assertEquals(15, parallel[1].split(",").length);
+        assertEquals(GameRules.DEFAULT.getTargetPieces(), parallel[1].split(",")[14].split(";").length);
+    }
+
+    @Test
+    public void autoAimWinsMoreThanRandomShots() throws IOException, InterruptedException {
+        List<GameRules> rules = Arrays.asList(GameRules.DEFAULT);
+        BatchSimulator simulator = new BatchSimulator(2, TICK, 1, 16 / 9f);
+        BatchSimulator.Summary scripted = simulator.run(rules, 8, BatchSimulator.SCRIPTED, 7, null)[0];
+        BatchSimulator.Summary auto = simulator.run(rules, 8, BatchSimulator.AUTO_AIM, 7, null)[0];
+        assertTrue(auto.getWins() > scripted.getWins());
+    }
+
+    @Test
+    public void jsonLinesHoldOneGameEach() throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        BatchSimulator simulator = new BatchSimulator(2, TICK, 1, 16 / 9f);
+        simulator.run(Arrays.asList(GameRules.DEFAULT.withTargetPieces(3)), 5, BatchSimulator.SCRIPTED, 1,
+                BatchSimulator.RecordWriter.jsonl(out));
+        String[] lines = out.toString().split("\n");
+        assertEquals(5, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("{\"game\":") && line.endsWith("]}"));
+            assertTrue(line, line.contains("\"targetPieces\":3"));
+        }
+    }
+
+    @Test
+    public void rulesChangeThePenalty() {
+        GameWorld world = new GameWorld();
+        world.setRules(GameRules.DEFAULT.withMissPenalty(0.25));
+        world.setSize(720, 1280);
+        world.clearLines();
+        world.addBlocker(400, 0, 400, 1280, 0, 0);
+        world.newGame();
+
+        assertTrue(world.fire(720, 639));
+        world.step(0.5);
+        assertEquals(GameWorld.GAME_DURATION - 0.25 - 0.5, world.getTimeLeft(), 1e-6);
+    }
+}
@@ -0,0 +1,53 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CannonballPoolTest {
+
+    @Test
+    public void recyclesKilledSlots() {
+        CannonballPool pool = new CannonballPool(4);
+        assertEquals(0, pool.spawn(0, 0, 1, 1));
+        assertEquals(1, pool.spawn(0, 0, 1, 1));
+        assertEquals(2, pool.spawn(0, 0, 1, 1));
+
+        pool.kill(1);
+        assertEquals(2, pool.liveCount());
+        assertEquals(1, pool.spawn(0, 0, 1, 1));
+    }
+
+    @Test
+    public void spawnFailsWhenFull() {
+        CannonballPool pool = new CannonballPool(2);
+        pool.spawn(0, 0, 0, 0);
+        pool.spawn(0, 0, 0, 0);
+        assertEquals(-1, pool.spawn(0, 0, 0, 0));
+    }
+
+    @Test
+    public void highWaterShrinksPastDeadSlots() {
+        CannonballPool pool = new CannonballPool(8);
+        for (int i = 0; i < 5; ++i)
+            pool.spawn(0, 0, 0, 0);
+        pool.kill(3);
+        assertEquals(5, pool.highWater());
+        pool.kill(4);
+        assertEquals(3, pool.highWater());
+    }
+
+    @Test
+    public void integrateMovesOnlyLiveBalls() {
+        CannonballPool pool = new CannonballPool(4);
+        pool.spawn(10, 20, 100, -50);
+        pool.spawn(0, 0, 100, 100);
+        pool.kill(1);
+
+        pool.integrate(0.5f);
+        assertEquals(60, pool.getX(0), 0);
+        assertEquals(-5, pool.getY(0), 0);
+        assertEquals(10, pool.getPreviousX(0), 0);
+        assertEquals(20, pool.getPreviousY(0), 0);
+    }
+}
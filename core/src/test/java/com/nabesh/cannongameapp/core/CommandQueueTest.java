@@ -0,0 +1,117 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandQueueTest {
+
+    @Test
+    public void appliesCommandsInOrder() {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.newGame();
+
+        CommandQueue queue = new CommandQueue(8);
+        assertTrue(queue.offer(CommandQueue.TOGGLE_RAPID_FIRE, 0, 0));
+        assertTrue(queue.offer(CommandQueue.FIRE, 720, 600));
+        assertTrue(queue.offer(CommandQueue.FIRE, 720, 600));
+
+        assertEquals(3, queue.drainTo(world));
+        assertTrue(queue.isEmpty());
+        assertTrue(world.isRapidFire());
+        assertEquals(2, world.getShotsFired());
+    }
+
+    @Test
+    public void aimsAreCoalescedToTheNewest() {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.newGame();
+
+        CommandQueue queue = new CommandQueue(8);
+        for (int i = 0; i < 100; ++i)
+            queue.offerAim(i, 100);
+        queue.offerAim(0, 640 - 200); //straight up
+        assertFalse(queue.isEmpty());
+
+        InputJournal journal = new InputJournal();
+        journal.begin(world, 1 / 60.0);
+        assertEquals(1, queue.drainTo(world, journal));
+        assertTrue(queue.isEmpty());
+        assertEquals(1, journal.size());
+        assertEquals(CommandQueue.AIM, journal.getType(0));
+        assertEquals(440, journal.getY(0), 0);
+        assertEquals(0, world.getBarrelEndX(), 1e-4);
+        assertEquals(640 - 90, world.getBarrelEndY(), 1e-3);
+
+        //nothing new, nothing applied
+        assertEquals(0, queue.drainTo(world, journal));
+    }
+
+    @Test
+    public void aimsKeepTheirPlaceAmongCommands() {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.newGame();
+        InputJournal journal = new InputJournal();
+        journal.begin(world, 1 / 60.0);
+
+        //fire, then move the finger straight up before the tick
+        CommandQueue queue = new CommandQueue(8);
+        queue.offerAim(720, 100);
+        queue.offer(CommandQueue.FIRE, 720, 600);
+        queue.offerAim(0, 640 - 200);
+        assertEquals(2, queue.drainTo(world, journal));
+        assertEquals(CommandQueue.FIRE, journal.getType(0));
+        assertEquals(CommandQueue.AIM, journal.getType(1));
+        assertEquals(0, world.getBarrelEndX(), 1e-4); //the move came last
+        assertTrue(queue.isEmpty());
+
+        //an aim before a command is applied before it
+        queue.offerAim(720, 100);
+        queue.offer(CommandQueue.TOGGLE_RAPID_FIRE, 0, 0);
+        assertEquals(2, queue.drainTo(world, journal));
+        assertEquals(CommandQueue.AIM, journal.getType(2));
+        assertEquals(CommandQueue.TOGGLE_RAPID_FIRE, journal.getType(3));
+    }
+
+    @Test
+    public void rejectsCommandsWhenFull() {
+        CommandQueue queue = new CommandQueue(4);
+        for (int i = 0; i < 4; ++i)
+            assertTrue(queue.offer(CommandQueue.AIM, i, i));
+        assertFalse(queue.offer(CommandQueue.AIM, 0, 0));
+    }
+
+    @Test
+    public void deliversEveryCommandAcrossThreads() throws InterruptedException {
+        final GameWorld world = new GameWorld(1 << 16);
+        world.setSize(720, 1280);
+        world.setRapidFire(true);
+        world.newGame();
+
+        final CommandQueue queue = new CommandQueue(16);
+        final int commands = 20000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < commands; ) {
+                    if (queue.offer(CommandQueue.FIRE, 720, 600))
+                        ++i;
+                    else
+                        Thread.yield();
+                }
+            }
+        };
+        producer.start();
+
+        int drained = 0;
+        while (drained < commands) {
+            drained += queue.drainTo(world);
+            world.getCannonballs().clear(); //keep room in the pool
+        }
+        producer.join();
+        assertEquals(commands, world.getShotsFired());
+    }
+}
@@ -0,0 +1,156 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GameLoopTest {
+
+    //counts passes and checks they never overlap, remembering every thread that ran one
+    private static class CountingBody implements GameLoop.Body {
+        final AtomicInteger passes = new AtomicInteger();
+        final AtomicInteger resumes = new AtomicInteger();
+        final AtomicInteger inside = new AtomicInteger();
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        volatile boolean overlapped;
+
+        @Override
+        public void onResume() {
+            resumes.incrementAndGet();
+        }
+
+        @Override
+        public long runOnce() {
+            if (inside.incrementAndGet() != 1)
+                overlapped = true;
+            threads.add(Thread.currentThread());
+            passes.incrementAndGet();
+            inside.decrementAndGet();
+            return 100000; //0.1 ms
+        }
+    }
+
+    private static void awaitPasses(CountingBody body, int passes) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (body.passes.get() < passes) {
+            assertTrue("the loop did not run", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void pauseAndResumeReuseOneThread() throws InterruptedException {
+        CountingBody body = new CountingBody();
+        GameLoop loop = new GameLoop("test", body);
+        for (int cycle = 0; cycle < 50; ++cycle) {
+            loop.resume();
+            awaitPasses(body, body.passes.get() + 2);
+            assertTrue(loop.pauseAndWait(1, TimeUnit.SECONDS));
+            assertEquals(GameLoop.PAUSED, loop.getState());
+
+            //nothing runs while paused
+            int passes = body.passes.get();
+            Thread.sleep(2);
+            assertEquals(passes, body.passes.get());
+        }
+        assertEquals(50, body.resumes.get());
+        assertEquals(1, body.threads.size());
+
+        assertTrue(loop.shutdown(1, TimeUnit.SECONDS));
+        assertEquals(GameLoop.STOPPED, loop.getState());
+        try {
+            loop.resume();
+            fail("resumed a stopped loop");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void loopNeverStartedShutsDownAtOnce() throws InterruptedException {
+        CountingBody body = new CountingBody();
+        GameLoop loop = new GameLoop("test", body);
+        assertTrue(loop.shutdown(0, TimeUnit.SECONDS));
+        assertEquals(GameLoop.STOPPED, loop.getState());
+        assertEquals(0, body.passes.get());
+    }
+
+    @Test
+    public void shutdownGivesUpOnAStuckPass() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        GameLoop loop = new GameLoop("stuck", new GameLoop.Body() {
+            @Override
+            public void onResume() {
+            }
+
+            @Override
+            public long runOnce() {
+                entered.countDown();
+                //ignores interrupts, like a pass blocked in native code
+                while (true) {
+                    try {
+                        release.await();
+                        return 0;
+                    } catch (InterruptedException e) {
+                        //keep waiting
+                    }
+                }
+            }
+        });
+        loop.resume();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        assertFalse(loop.pauseAndWait(20, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        assertFalse(loop.shutdown(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        assertTrue(loop.shutdown(1, TimeUnit.SECONDS));
+        assertEquals(GameLoop.STOPPED, loop.getState());
+    }
+
+    @Test
+    public void survivesConcurrentControl() throws InterruptedException {
+        final CountingBody body = new CountingBody();
+        final GameLoop loop = new GameLoop("stress", body);
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] controllers = new Thread[4];
+        for (int i = 0; i < controllers.length; ++i) {
+            final long seed = i;
+            controllers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    try {
+                        for (int k = 0; k < 2000; ++k) {
+                            if (random.nextBoolean()) {
+                                loop.resume();
+                            } else {
+                                loop.pause();
+                                loop.awaitPaused(1, TimeUnit.SECONDS);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            controllers[i].start();
+        }
+        for (Thread controller : controllers)
+            controller.join();
+
+        assertEquals(0, failures.get());
+        assertTrue(loop.shutdown(1, TimeUnit.SECONDS));
+        assertFalse(body.overlapped);
+        assertTrue(body.threads.size() <= 1);
+    }
+}
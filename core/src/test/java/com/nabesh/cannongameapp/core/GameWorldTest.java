@@ -0,0 +1,296 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class GameWorldTest {
+    private static final double TICK = 1 / 60.0;
+
+    private GameWorld world;
+
+    @Before
+    public void setUp() {
+        world = new GameWorld();
+        world.setSize(720, 1280);
+        world.newGame();
+    }
+
+    @Test
+    public void slowShotKeepsMovingBetweenTicks() {
+        //aiming almost straight up leaves a horizontal velocity of well under one pixel per tick
+        assertTrue(world.fire(1, 0));
+        CannonballPool cannonballs = world.getCannonballs();
+        float startX = cannonballs.getX(0);
+        float velocityX = cannonballs.getVelocityX(0);
+        assertTrue(velocityX * TICK < 1);
+
+        for (int i = 0; i < 10; ++i)
+            world.step(TICK);
+
+        assertEquals(startX + velocityX * 10 * TICK, cannonballs.getX(0), 1e-3);
+    }
+
+    @Test
+    public void onlyOneBallAtATime() {
+        assertTrue(world.fire(720, 640));
+        assertFalse(world.fire(720, 640));
+        assertEquals(1, world.getShotsFired());
+    }
+
+    @Test
+    public void rapidFireAllowsManyBalls() {
+        world.setRapidFire(true);
+        for (int i = 0; i < 100; ++i)
+            assertTrue(world.fire(720, 600));
+        assertEquals(100, world.getCannonballs().liveCount());
+
+        world.newGame();
+        assertFalse(world.isCannonballOnScreen());
+    }
+
+    @Test
+    public void timerRunsOut() {
+        final boolean[] lost = new boolean[1];
+        world.setListener(new IgnoringListener() {
+            @Override
+            public void onGameOver(boolean won) {
+                lost[0] = !won;
+            }
+        });
+
+        for (int i = 0; i < 11 * 60 && !world.isGameOver(); ++i)
+            world.step(TICK);
+
+        assertTrue(world.isGameOver());
+        assertTrue(lost[0]);
+        assertEquals(0, world.getTimeLeft(), 0);
+        assertEquals(GameWorld.GAME_DURATION, world.getTotalTimeElapsed(), TICK);
+    }
+
+    @Test
+    public void blockerBouncesOffTheBottom() {
+        float velocitySign = 1;
+        Line blocker = world.findLine(Line.BLOCKER);
+        for (int i = 0; i < 5 * 60; ++i) {
+            float before = blocker.startY;
+            world.step(TICK);
+            if (blocker.startY < before)
+                velocitySign = -1;
+        }
+        assertEquals(-1, velocitySign, 0);
+        assertTrue(blocker.endY <= world.getHeight() + 1);
+    }
+
+    @Test
+    public void hittingEveryPieceOfEveryTargetWins() {
+        world.clearLines();
+        world.addTarget(600, 100, 600, 300, 0, 0, 2);
+        world.addTarget(600, 900, 600, 1100, 0, 0, 1);
+        world.newGame();
+        assertEquals(3, world.getTargetPieces());
+
+        final boolean[] won = new boolean[1];
+        world.setListener(new IgnoringListener() {
+            @Override
+            public void onGameOver(boolean w) {
+                won[0] = w;
+            }
+        });
+
+        float[] aims = {150, 250, 1000};
+        for (float aimY : aims) {
+            assertTrue(world.fire(600, aimY));
+            for (int i = 0; i < 120 && world.isCannonballOnScreen(); ++i)
+                world.step(TICK);
+        }
+        assertEquals(3, world.getTargetPiecesHit());
+        assertTrue(world.isGameOver());
+        assertTrue(won[0]);
+    }
+
+    @Test
+    public void lowTickRateDoesNotTunnelThroughTheTarget() {
+        world.clearLines();
+        world.addTarget(600, 0, 600, 1280, 0, 0, 1);
+        world.newGame();
+
+        //at two ticks a second the ball jumps from well before the target to beyond it
+        assertTrue(world.fire(600, 639));
+        world.step(0.5);
+        world.step(0.5);
+        assertEquals(1, world.getTargetPiecesHit());
+    }
+
+    @Test
+    public void lowTickRateStillBouncesOffTheBlocker() {
+        world.clearLines();
+        world.addBlocker(400, 0, 400, 1280, 0, 0);
+        world.newGame();
+
+        assertTrue(world.fire(720, 639));
+        world.step(0.5);
+        CannonballPool cannonballs = world.getCannonballs();
+        assertTrue(cannonballs.getVelocityX(0) < 0);
+        assertTrue(cannonballs.getX(0) < 400);
+        assertEquals(GameWorld.GAME_DURATION - GameWorld.MISS_PENALTY - 0.5, world.getTimeLeft(), 1e-6);
+    }
+
+    @Test
+    public void copyOverAnotherLevelOfTheSameSizePlaysTheSame() {
+        world.clearLines();
+        world.addTarget(650, 0, 650, 1280, 0, 0, 1);
+        world.newGame();
+        //a level with more lines, the last a wall in front of the target
+        GameWorld copy = new GameWorld();
+        copy.setSize(720, 1280);
+        copy.addBlocker(500, 0, 500, 1280, 0, 0);
+        copy.newGame();
+        assertEquals(3, copy.getLineCount());
+
+        copy.copyFrom(world);
+        assertEquals(1, copy.getLineCount());
+        assertTrue(world.fire(720, 640));
+        assertTrue(copy.fire(720, 640));
+        for (int i = 0; i < 120; ++i) {
+            world.step(TICK);
+            copy.step(TICK);
+        }
+        assertEquals(1, world.getTargetPiecesHit());
+        assertEquals(1, copy.getTargetPiecesHit()); //the old wall is gone from the grid as well
+        assertEquals(world.getCannonballs().liveCount(), copy.getCannonballs().liveCount());
+    }
+
+    @Test
+    public void savedStateCarriesOn() throws IOException {
+        world.setRapidFire(true);
+        for (int i = 0; i < 20; ++i) {
+            world.fire(720, 200 + i * 40);
+            world.step(TICK);
+        }
+        ByteBuffer state = ByteBuffer.allocate(GameWorld.maxStateBytes(GameWorld.DEFAULT_CANNONBALL_CAPACITY));
+        world.writeState(state);
+        state.flip();
+
+        GameWorld restored = new GameWorld();
+        restored.setSize(720, 1280);
+        restored.readState(state);
+        assertFalse(state.hasRemaining());
+        assertEquals(world.getTick(), restored.getTick());
+        assertEquals(world.getTimeLeft(), restored.getTimeLeft(), 0);
+        assertEquals(world.getShotsFired(), restored.getShotsFired());
+        assertEquals(world.getTargetPiecesHit(), restored.getTargetPiecesHit());
+        assertTrue(restored.isRapidFire());
+        assertEquals(world.getBarrelEndX(), restored.getBarrelEndX(), 0);
+        assertEquals(world.getCannonballs().liveCount(), restored.getCannonballs().liveCount());
+
+        //both worlds play on the same way
+        for (int i = 0; i < 60; ++i) {
+            world.step(TICK);
+            restored.step(TICK);
+        }
+        assertEquals(world.getCannonballs().liveCount(), restored.getCannonballs().liveCount());
+        for (int i = 0; i < world.getLineCount(); ++i) {
+            assertEquals(world.getLine(i).startY, restored.getLine(i).startY, 1e-2);
+            assertEquals(world.getLine(i).hitMask, restored.getLine(i).hitMask);
+        }
+        assertEquals(world.getTimeLeft(), restored.getTimeLeft(), 0);
+    }
+
+    @Test
+    public void savedStateScalesToAnotherSize() throws IOException {
+        world.fire(720, 640);
+        world.step(TICK);
+        ByteBuffer state = ByteBuffer.allocate(GameWorld.maxStateBytes(GameWorld.DEFAULT_CANNONBALL_CAPACITY));
+        world.writeState(state);
+        state.flip();
+
+        GameWorld rotated = new GameWorld();
+        rotated.setSize(1280, 720);
+        rotated.readState(state);
+        Line target = rotated.findLine(Line.TARGET);
+        assertEquals(world.findLine(Line.TARGET).startX / 720 * 1280, target.startX, 1e-2);
+        assertEquals(world.findLine(Line.TARGET).startY / 1280 * 720, target.startY, 1e-2);
+        assertEquals(world.getCannonballs().getX(0) / 720 * 1280, rotated.getCannonballs().getX(0), 1e-2);
+
+        //a new game puts the lines back where they start on the new screen
+        rotated.newGame();
+        assertEquals(1280 * 7 / 8f, rotated.findLine(Line.TARGET).startX, 1e-2);
+        assertEquals(GameWorld.GAME_DURATION, rotated.getTimeLeft(), 0);
+    }
+
+    @Test
+    public void truncatedStateIsRejected() {
+        ByteBuffer state = ByteBuffer.allocate(GameWorld.maxStateBytes(GameWorld.DEFAULT_CANNONBALL_CAPACITY));
+        world.writeState(state);
+        state.flip();
+        state.limit(state.limit() - 3);
+        try {
+            new GameWorld().readState(state);
+            fail("read a state into a world with no size");
+        } catch (IllegalStateException expected) {
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+
+        GameWorld other = new GameWorld();
+        other.setSize(720, 1280);
+        try {
+            other.readState(state);
+            fail("read a truncated state");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void gameIsTheSameAtEveryResolution() {
+        //the same game in pixels and in a world 1 wide, fired at the same point on the screen
+        GameWorld normalised = new GameWorld();
+        normalised.setSize(1, 1280 / 720f);
+        normalised.newGame();
+        for (int i = 0; i < 240; ++i) {
+            if (i % 10 == 0) {
+                float y = 100 + (i * 37) % 1100;
+                assertEquals(world.fire(720, y), normalised.fire(1, y / 720));
+            }
+            world.step(TICK);
+            normalised.step(TICK);
+        }
+
+        assertEquals(world.getTimeLeft(), normalised.getTimeLeft(), 1e-9);
+        assertEquals(world.getTargetPiecesHit(), normalised.getTargetPiecesHit());
+        assertEquals(world.findLine(Line.TARGET).hitMask, normalised.findLine(Line.TARGET).hitMask);
+        CannonballPool pixels = world.getCannonballs();
+        CannonballPool units = normalised.getCannonballs();
+        assertEquals(pixels.liveCount(), units.liveCount());
+        for (int i = 0; i < pixels.highWater(); ++i) {
+            if (pixels.isAlive(i)) {
+                assertEquals(pixels.getX(i) / 720, units.getX(i), 1e-4);
+                assertEquals(pixels.getY(i) / 720, units.getY(i), 1e-4);
+            }
+        }
+    }
+
+    //listener that ignores every event
+    static class IgnoringListener implements GameWorld.Listener {
+        @Override
+        public void onCannonFired() {
+        }
+
+        @Override
+        public void onBlockerHit() {
+        }
+
+        @Override
+        public void onTargetHit(int section) {
+        }
+
+        @Override
+        public void onGameOver(boolean won) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void everyValueFallsInABucketThatCoversIt() {
+        long[] values = {0, 1, 31, 32, 33, 1000, 16666666, 123456789012L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) >= value);
+            if (bucket > 0)
+                assertTrue(LatencyHistogram.highestValueIn(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; ++i)
+            histogram.record(i * 1000);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean());
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 / 16);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 / 16);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int perThread = 100000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            final long value = (t + 1) * 1000;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; ++i)
+                        histogram.record(value);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(threads.length * perThread, histogram.getCount());
+        assertEquals(threads.length * 1000, histogram.getMax());
+    }
+
+    @Test
+    public void frameStatsCountsJank() {
+        FrameStats stats = new FrameStats(60);
+        stats.recordFrameInterval(16666666);
+        stats.recordFrameInterval(20000000);
+        stats.recordFrameInterval(33333333);
+        stats.recordUpdate(100000);
+
+        assertEquals(1, stats.getJankCount());
+        assertTrue(stats.dump().contains("jank   1 of 3 frames"));
+
+        stats.reset();
+        assertEquals(0, stats.getJankCount());
+        assertEquals(0, stats.getUpdateNanos().getCount());
+    }
+}
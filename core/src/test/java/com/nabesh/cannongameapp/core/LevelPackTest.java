@@ -0,0 +1,101 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class LevelPackTest {
+    private static final String LEVELS =
+            "# two levels\n" +
+            "level Classic\n" +
+            "time 10\n" +
+            "blocker 0.625 0.125 0.625 0.375  0 0.5\n" +
+            "target 0.875 0.125 0.875 0.875  0 -0.25  7\n" +
+            "\n" +
+            "level Two blockers\n" +
+            "time 15.5\n" +
+            "blocker 0.5 0.1 0.5 0.3  0 0.4\n" +
+            "blocker 0.7 0.6 0.7 0.8  0 -0.4\n" +
+            "target 0.9 0.2 0.9 0.8  0 0.2  4\n";
+
+    private static LevelPack pack(String text) throws IOException {
+        return new LevelPack(ByteBuffer.wrap(LevelCompiler.compile(new StringReader(text))));
+    }
+
+    @Test
+    public void classicLevelMatchesTheDefaultLayout() throws IOException {
+        LevelPack pack = pack(LEVELS);
+        assertEquals(2, pack.getLevelCount());
+
+        GameWorld expected = new GameWorld();
+        expected.setSize(720, 1280);
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.addBlocker(1, 1, 2, 2, 0, 0); //replaced by the level
+        Level classic = pack.getLevel(0);
+        assertEquals("Classic", classic.getName());
+        classic.applyTo(world);
+
+        assertEquals(expected.getLineCount(), world.getLineCount());
+        for (int i = 0; i < world.getLineCount(); ++i) {
+            Line a = expected.getLine(i);
+            Line b = world.getLine(i);
+            assertEquals(a.getType(), b.getType());
+            assertEquals(a.getPieces(), b.getPieces());
+            assertEquals(a.startX, b.startX, 1e-3);
+            assertEquals(a.startY, b.startY, 1e-3);
+            assertEquals(a.endY, b.endY, 1e-3);
+            assertEquals(a.velocityY, b.velocityY, 1e-3);
+        }
+        assertEquals(GameWorld.GAME_DURATION, world.getGameDuration(), 0);
+    }
+
+    @Test
+    public void levelsAreParsedOnceAndLaidOutOncePerSize() throws IOException {
+        LevelPack pack = pack(LEVELS);
+        Level level = pack.getLevel(1);
+        assertSame(level, pack.getLevel(1));
+        assertEquals("Two blockers", level.getName());
+        assertEquals(3, level.getLineCount());
+
+        float[] layout = level.layoutFor(720, 1280);
+        assertSame(layout, level.layoutFor(720, 1280));
+        assertNotSame(layout, level.layoutFor(1080, 1920));
+
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        level.applyTo(world);
+        world.newGame();
+        assertEquals(15.5, world.getTimeLeft(), 0);
+        assertEquals(4, world.getTargetPieces());
+
+        //the default level puts the default clock back
+        world.setSize(720, 1280);
+        assertEquals(GameWorld.GAME_DURATION, world.getGameDuration(), 0);
+    }
+
+    @Test
+    public void errorsNameTheLine() {
+        try {
+            pack("level Broken\ntime 10\nblocker 0 0 1\n");
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("line 3:"));
+        }
+        try {
+            pack("level No time\nblocker 0 0 1 1 0 0\n");
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("time budget"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        new LevelPack(ByteBuffer.wrap(new byte[]{'C', 'J', 'N', 'L', 2, 0, 0, 0, 0}));
+    }
+}
@@ -0,0 +1,226 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.*;
+
+public class LockstepSessionTest {
+    private static final double TICK = 1 / 60.0;
+    private static final int INPUT_DELAY = 2;
+    private static final int MAX_PREDICTION = 8;
+
+    private LockstepPeer first;
+    private LockstepPeer second;
+
+    @Before
+    public void openPeers() throws IOException {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        first = new LockstepPeer(new InetSocketAddress(loopback, 0));
+        second = new LockstepPeer(new InetSocketAddress(loopback, 0));
+        first.connect(second.getLocalAddress());
+        second.connect(first.getLocalAddress());
+    }
+
+    @After
+    public void closePeers() throws IOException {
+        first.close();
+        second.close();
+    }
+
+    private static GameWorld newWorld() {
+        GameWorld world = new GameWorld();
+        world.setParticles(new ParticleSystem(256));
+        world.setSize(1, 16 / 9f);
+        world.setPlayers(2);
+        world.newGame();
+        return world;
+    }
+
+    //a scripted player, aiming now and then and firing at the target's side of the screen
+    private static void play(LockstepSession session, int pass, int seed) {
+        if (pass % (5 + seed) == 0)
+            session.command(CommandQueue.AIM, 0.5f, (pass * (7 + seed) % 160) / 100f);
+        if (pass % (23 + seed * 4) == 0)
+            session.command(CommandQueue.FIRE, 0.9f, 0.2f + (pass * (13 + seed) % 140) / 100f);
+    }
+
+    //runs both sessions from this thread until both are finished, the second one only on some
+    //passes so the first keeps running ahead on predictions. Like the game, a session is not
+    //ticked again once it has reported game over.
+    private static void playOut(LockstepSession a, LockstepSession b, int secondRunsOneIn) {
+        for (int pass = 0; !(a.isFinished() && b.isFinished()); ++pass) {
+            assertTrue("the game never ended", pass < 200000);
+            assertFalse(a.isPeerLost() || b.isPeerLost());
+            if (!a.isFinished()) {
+                play(a, pass, 0);
+                a.tick();
+            }
+            if (pass % secondRunsOneIn != 0 && !b.isFinished()) {
+                play(b, pass, 2);
+                b.tick();
+            }
+        }
+    }
+
+    private static void assertSameGame(GameWorld a, GameWorld b) {
+        assertTrue(a.isGameOver());
+        assertEquals(a.getTick(), b.getTick());
+        assertEquals(a.getTimeLeft(), b.getTimeLeft(), 0);
+        assertEquals(a.getShotsFired(), b.getShotsFired());
+        assertEquals(a.getLineCount(), b.getLineCount());
+        for (int i = 0; i < a.getLineCount(); ++i) {
+            Line line = a.getLine(i);
+            for (int piece = 0; piece < line.getPieces(); ++piece)
+                assertEquals(line.isPieceHit(piece), b.getLine(i).isPieceHit(piece));
+        }
+        assertEquals(a.getBarrelEndX(1), b.getBarrelEndX(1), 0);
+        assertEquals(a.getBarrelEndY(1), b.getBarrelEndY(1), 0);
+    }
+
+    private static class GameOverCounter implements GameWorld.Listener {
+        int gameOvers;
+        boolean won;
+
+        @Override
+        public void onCannonFired() {
+        }
+
+        @Override
+        public void onBlockerHit() {
+        }
+
+        @Override
+        public void onTargetHit(int section) {
+        }
+
+        @Override
+        public void onGameOver(boolean won) {
+            ++gameOvers;
+            this.won = won;
+        }
+    }
+
+    @Test
+    public void peersOnLocalhostPlayTheSameGame() {
+        LockstepSession a = new LockstepSession(newWorld(), first, 0, TICK, INPUT_DELAY, MAX_PREDICTION);
+        LockstepSession b = new LockstepSession(newWorld(), second, 1, TICK, INPUT_DELAY, MAX_PREDICTION);
+        GameOverCounter aOver = new GameOverCounter();
+        GameOverCounter bOver = new GameOverCounter();
+        a.setListener(aOver);
+        b.setListener(bOver);
+
+        playOut(a, b, 3);
+        assertSameGame(a.getWorld(), b.getWorld());
+        assertEquals(1, aOver.gameOvers);
+        assertEquals(1, bOver.gameOvers);
+        assertEquals(aOver.won, bOver.won);
+        assertTrue(a.getWorld().getShotsFired() > 5);
+
+        //the first player ran ahead and had to correct itself, the second was held back
+        assertTrue(a.getRollbacks() > 0);
+        assertTrue(a.getLongestRollback() <= MAX_PREDICTION);
+        assertTrue(a.getStalls() > 0);
+        assertEquals(0, a.getBadPackets() + b.getBadPackets());
+        //a header and a byte or five for each unconfirmed tick
+        assertTrue(a.dump(), a.getBytesPerTick() < 40);
+    }
+
+    @Test
+    public void lostDatagramsAreCoveredByTheNextOnes() {
+        first.setSendLoss(3);
+        second.setSendLoss(4);
+        LockstepSession a = new LockstepSession(newWorld(), first, 0, TICK, INPUT_DELAY, MAX_PREDICTION);
+        LockstepSession b = new LockstepSession(newWorld(), second, 1, TICK, INPUT_DELAY, MAX_PREDICTION);
+        playOut(a, b, 2);
+        assertSameGame(a.getWorld(), b.getWorld());
+    }
+
+    @Test
+    public void aPlayerThatStopsAtGameOverStillLetsTheOtherFinish() {
+        //the first player runs every pass, so it usually reaches the end first, and loses half its datagrams
+        first.setSendLoss(2);
+        LockstepSession a = new LockstepSession(newWorld(), first, 0, TICK, INPUT_DELAY, MAX_PREDICTION);
+        LockstepSession b = new LockstepSession(newWorld(), second, 1, TICK, INPUT_DELAY, MAX_PREDICTION);
+        GameOverCounter aOver = new GameOverCounter();
+        GameOverCounter bOver = new GameOverCounter();
+        a.setListener(aOver);
+        b.setListener(bOver);
+        for (int pass = 0; bOver.gameOvers == 0; ++pass) {
+            assertTrue(b.dump(), pass < 200000);
+            if (aOver.gameOvers == 0) { //the game pauses its loop on game over
+                play(a, pass, 0);
+                a.tick();
+            }
+            if (pass % 2 != 0) {
+                play(b, pass, 2);
+                b.tick();
+            }
+        }
+        assertEquals(1, aOver.gameOvers);
+        assertFalse(b.isPeerLost());
+        assertSameGame(a.getWorld(), b.getWorld());
+    }
+
+    @Test
+    public void aPlayerThatGoesSilentIsReported() throws IOException {
+        LockstepSession a = new LockstepSession(newWorld(), first, 0, TICK, INPUT_DELAY, MAX_PREDICTION);
+        LockstepSession b = new LockstepSession(newWorld(), second, 1, TICK, INPUT_DELAY, MAX_PREDICTION);
+        a.setSilenceLimit(30);
+        for (int pass = 0; pass < 100; ++pass) {
+            play(a, pass, 0);
+            a.tick();
+            play(b, pass, 2);
+            b.tick();
+        }
+        assertFalse(a.isPeerLost());
+        assertTrue(a.getWorld().getTick() > 50);
+
+        second.close(); //the other app is gone
+        int passes = 0;
+        while (!a.isPeerLost()) {
+            assertTrue(a.dump(), ++passes < 1000);
+            a.tick();
+        }
+        assertTrue(a.getSilentPasses() >= 30);
+        assertFalse(a.isFinished());
+        //the session stops there
+        long tick = a.getWorld().getTick();
+        assertFalse(a.tick());
+        assertEquals(tick, a.getWorld().getTick());
+    }
+
+    @Test
+    public void sessionMatchesOneWorldFedBothPlayers() {
+        LockstepSession a = new LockstepSession(newWorld(), first, 0, TICK, INPUT_DELAY, MAX_PREDICTION);
+        LockstepSession b = new LockstepSession(newWorld(), second, 1, TICK, INPUT_DELAY, MAX_PREDICTION);
+        //both players fire once at set passes, which are ticks as neither session ever stalls here
+        for (int pass = 0; pass < 200; ++pass) {
+            if (pass == 10)
+                a.command(CommandQueue.FIRE, 0.9f, 0.5f);
+            if (pass == 30)
+                b.command(CommandQueue.FIRE, 0.9f, 1.2f);
+            a.tick();
+            b.tick();
+        }
+
+        GameWorld reference = newWorld();
+        for (int tick = 0; tick < 200; ++tick) {
+            if (tick == 10 + INPUT_DELAY)
+                reference.fire(0, 0.9f, 0.5f);
+            if (tick == 30 + INPUT_DELAY)
+                reference.fire(1, 0.9f, 1.2f);
+            reference.step(TICK);
+        }
+        assertEquals(200, a.getWorld().getTick());
+        assertEquals(reference.getTimeLeft(), a.getWorld().getTimeLeft(), 1e-9);
+        assertEquals(2, a.getWorld().getShotsFired());
+        assertEquals(reference.getBarrelEndY(1), a.getWorld().getBarrelEndY(1), 1e-4);
+        assertEquals(reference.getBarrelEndY(1), b.getWorld().getBarrelEndY(1), 1e-4);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParticleSystemTest {
+
+    @Test
+    public void burstsMoveAndBurnOut() {
+        ParticleSystem particles = new ParticleSystem(64);
+        particles.burst(ParticleSystem.BLOCKER_SPARK, 10, 5, 5, 1, 0, 0, 2, 1);
+        assertEquals(10, particles.count());
+
+        particles.update(0.1f);
+        for (int i = 0; i < particles.count(); ++i) {
+            assertEquals(5, particles.getPreviousX(i), 0);
+            assertTrue(particles.getX(i) > 5); //no spread, all of them go right
+            assertEquals(5, particles.getY(i), 1e-5);
+            assertEquals(ParticleSystem.BLOCKER_SPARK, particles.getKind(i));
+        }
+
+        //the longest life is the one asked for
+        particles.update(0.95f);
+        assertEquals(0, particles.count());
+    }
+
+    @Test
+    public void dropsWhatDoesNotFit() {
+        ParticleSystem particles = new ParticleSystem(16);
+        particles.burst(ParticleSystem.TARGET_SPARK, 10, 0, 0, 0, 0, 0, 1, 1);
+        particles.burst(ParticleSystem.MUZZLE_FLASH, 10, 0, 0, 0, 0, 0, 1, 1);
+        assertEquals(16, particles.count());
+        assertEquals(4, particles.getDropped());
+
+        particles.clear();
+        assertEquals(0, particles.count());
+    }
+
+    @Test
+    public void survivorsStayPacked() {
+        ParticleSystem particles = new ParticleSystem(64);
+        particles.burst(ParticleSystem.MUZZLE_FLASH, 20, 0, 0, 0, 0, 0, 1, 0.1f);
+        particles.burst(ParticleSystem.TARGET_SPARK, 20, 0, 0, 0, 0, 0, 1, 10);
+        particles.update(0.2f);
+        assertEquals(20, particles.count());
+        for (int i = 0; i < particles.count(); ++i)
+            assertEquals(ParticleSystem.TARGET_SPARK, particles.getKind(i));
+    }
+
+    @Test
+    public void worldSendsSparksAndSnapshotSortsThem() {
+        GameWorld world = new GameWorld();
+        world.setParticles(new ParticleSystem(512));
+        world.setSize(720, 1280);
+        world.clearLines();
+        world.addBlocker(400, 0, 400, 1280, 0, 0);
+        world.newGame();
+
+        assertTrue(world.fire(720, 639));
+        assertEquals(24, world.getParticles().count()); //the muzzle flash
+        for (int i = 0; i < 30; ++i)
+            world.step(1 / 60.0);
+        WorldSnapshot snapshot = new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY, 512);
+        snapshot.copyFrom(world);
+        assertTrue(snapshot.particleCount[ParticleSystem.BLOCKER_SPARK] > 0);
+        assertEquals(world.getParticles().count(), snapshot.particleTotal);
+
+        //every streak is in its kind's run and inside the bounds
+        int total = 0;
+        for (int kind = 0; kind < ParticleSystem.KINDS; ++kind) {
+            assertEquals(total, snapshot.particleStart[kind]);
+            total += snapshot.particleCount[kind];
+        }
+        assertEquals(snapshot.particleTotal, total);
+        for (int i = 0; i < total * 4; i += 2) {
+            assertTrue(snapshot.particleStreaks[i] >= snapshot.particleMinX);
+            assertTrue(snapshot.particleStreaks[i] <= snapshot.particleMaxX);
+            assertTrue(snapshot.particleStreaks[i + 1] >= snapshot.particleMinY);
+            assertTrue(snapshot.particleStreaks[i + 1] <= snapshot.particleMaxY);
+        }
+
+        //a snapshot with no room for particles is left without them
+        WorldSnapshot bare = new WorldSnapshot(GameWorld.DEFAULT_CANNONBALL_CAPACITY);
+        bare.copyFrom(world);
+        assertEquals(0, bare.particleTotal);
+    }
+}
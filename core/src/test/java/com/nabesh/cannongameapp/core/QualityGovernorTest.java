@@ -0,0 +1,100 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+    private static final int WINDOW = 10;
+
+    private static QualityGovernor newGovernor() {
+        return new QualityGovernor(QualityGovernor.DEFAULT_LEVELS, WINDOW, 0.85f, 0.5f, 3);
+    }
+
+    //feeds the given number of whole windows at one load
+    private static void feed(QualityGovernor governor, int windows, float load) {
+        for (int i = 0; i < windows * WINDOW; ++i)
+            governor.sample(i, load);
+    }
+
+    @Test
+    public void stepsDownUnderPressureAndStopsAtTheLastLevel() {
+        QualityGovernor governor = newGovernor();
+        feed(governor, 1, 1.2f);
+        assertEquals(1, governor.getLevelIndex());
+
+        //the window after a change is ignored
+        feed(governor, 1, 1.2f);
+        assertEquals(1, governor.getLevelIndex());
+
+        feed(governor, 20, 1.2f);
+        assertEquals(QualityGovernor.DEFAULT_LEVELS.length - 1, governor.getLevelIndex());
+        assertEquals(30, governor.getLevel().getTickRate());
+        assertEquals(QualityGovernor.DEFAULT_LEVELS.length - 1, governor.getDecisions().size());
+    }
+
+    @Test
+    public void loadBetweenTheThresholdsKeepsTheLevel() {
+        QualityGovernor governor = newGovernor();
+        feed(governor, 1, 1);
+        assertEquals(1, governor.getLevelIndex());
+        feed(governor, 50, 0.7f);
+        assertEquals(1, governor.getLevelIndex());
+    }
+
+    @Test
+    public void stepsUpOnlyAfterCalmWindows() {
+        QualityGovernor governor = newGovernor();
+        feed(governor, 1, 1);
+        feed(governor, 1, 0.1f); //settling
+        feed(governor, 2, 0.1f);
+        assertEquals(1, governor.getLevelIndex());
+        feed(governor, 1, 0.1f);
+        assertEquals(0, governor.getLevelIndex());
+
+        List<QualityGovernor.Decision> decisions = governor.getDecisions();
+        assertEquals(2, decisions.size());
+        assertEquals(1, decisions.get(1).getFrom());
+        assertEquals(0, decisions.get(1).getTo());
+        assertEquals(0.1f, decisions.get(1).getLoad(), 1e-6);
+    }
+
+    @Test
+    public void stepUpThatFailsDoublesTheWait() {
+        QualityGovernor governor = newGovernor();
+        feed(governor, 1, 1); //down to 1
+        feed(governor, 4, 0.1f); //settle, then up to 0
+        assertEquals(0, governor.getLevelIndex());
+        feed(governor, 1, 0.1f); //settle
+        feed(governor, 1, 1); //the step up was too far
+        assertEquals(1, governor.getLevelIndex());
+        assertEquals(6, governor.getCalmWindowsNeeded());
+
+        feed(governor, 1 + 5, 0.1f);
+        assertEquals(1, governor.getLevelIndex());
+        feed(governor, 1, 0.1f);
+        assertEquals(0, governor.getLevelIndex());
+    }
+
+    @Test
+    public void listenerHearsEveryChange() {
+        QualityGovernor governor = newGovernor();
+        final int[] changes = new int[1];
+        governor.setListener(new QualityGovernor.Listener() {
+            @Override
+            public void onQualityChanged(QualityGovernor.Level level, QualityGovernor.Decision decision) {
+                ++changes[0];
+                assertFalse(level.isAntiAlias());
+            }
+        });
+        feed(governor, 4, 2);
+        assertEquals(2, changes[0]);
+        assertTrue(governor.dump().startsWith("quality 2"));
+
+        governor.reset();
+        assertEquals(0, governor.getLevelIndex());
+        assertTrue(governor.getDecisions().isEmpty());
+    }
+}
@@ -0,0 +1,186 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ReplayEngineTest {
+    private static final double TICK = 1000.0 / 60 / 1000;
+
+    //plays a game the way the simulation thread does, with a scripted player feeding the queue
+    private static ReplayEngine.Result playLive(InputJournal journal) {
+        GameWorld world = new GameWorld();
+        ReplayEngine.Recorder recorder = new ReplayEngine.Recorder();
+        world.setListener(recorder);
+        world.setSize(720, 1280);
+        world.newGame();
+        CommandQueue queue = new CommandQueue(16);
+
+        for (int frame = 0; !world.isGameOver(); ++frame) {
+            if (frame % 7 == 0)
+                queue.offer(CommandQueue.AIM, 300 + frame % 200, 200 + (frame * 13) % 900);
+            if (frame % 45 == 0)
+                queue.offer(CommandQueue.FIRE, 600, 100 + (frame * 37) % 1100);
+            if (frame == 300)
+                queue.offer(CommandQueue.TOGGLE_RAPID_FIRE, 0, 0);
+
+            if (world.getTick() == 0)
+                journal.begin(world, TICK);
+            queue.drainTo(world, journal);
+            world.step(TICK);
+        }
+        return recorder.result(world);
+    }
+
+    @Test
+    public void replayReproducesTheLiveGame() {
+        InputJournal journal = new InputJournal();
+        ReplayEngine.Result live = playLive(journal);
+        assertTrue(live.shotsFired > 10);
+        assertTrue(live.getHits().length > 0);
+
+        ReplayEngine engine = new ReplayEngine();
+        assertEquals(live, engine.run(journal));
+        //and again with the same engine
+        assertEquals(live, engine.run(journal));
+    }
+
+    @Test
+    public void journalSurvivesTheBinaryFormat() throws IOException {
+        InputJournal journal = new InputJournal();
+        ReplayEngine.Result live = playLive(journal);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        journal.writeTo(bytes);
+        //a delta byte, a type byte and two floats for most commands
+        assertTrue(bytes.size() < 30 + journal.size() * 11);
+
+        InputJournal read = InputJournal.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(journal.size(), read.size());
+        assertEquals(journal.getTickSeconds(), read.getTickSeconds(), 0);
+        for (int i = 0; i < journal.size(); ++i) {
+            assertEquals(journal.getTick(i), read.getTick(i));
+            assertEquals(journal.getType(i), read.getType(i));
+            assertEquals(journal.getX(i), read.getX(i), 0);
+            assertEquals(journal.getY(i), read.getY(i), 0);
+        }
+        assertEquals(live, new ReplayEngine().run(read));
+    }
+
+    @Test
+    public void journalCarriesTheCannonballLimit() throws IOException {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.setCannonballLimit(3);
+        world.setRapidFire(true);
+        world.newGame();
+        for (int i = 0; i < 5; ++i)
+            assertEquals(i < 3, world.fire(720, 200));
+
+        InputJournal journal = new InputJournal();
+        journal.begin(world, TICK);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        journal.writeTo(bytes);
+        InputJournal read = InputJournal.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(3, read.getCannonballLimit());
+        assertTrue(read.isRapidFire());
+    }
+
+    @Test
+    public void journalCarriesTheLevel() throws IOException {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.clearLines();
+        world.addBlocker(400, 100, 400, 500, 0, 300);
+        world.addTarget(650, 200, 650, 1000, 0, 0, 3);
+        world.setGameDuration(4);
+        world.newGame();
+        ReplayEngine.Recorder recorder = new ReplayEngine.Recorder();
+        world.setListener(recorder);
+
+        InputJournal journal = new InputJournal();
+        journal.begin(world, TICK);
+        for (int shot = 0; !world.isGameOver(); ++shot) {
+            if (!world.isCannonballOnScreen()) {
+                journal.record(world.getTick(), CommandQueue.FIRE, 600, 300 + (shot * 97) % 700);
+                world.fire(600, 300 + (shot * 97) % 700);
+            }
+            world.step(TICK);
+        }
+        ReplayEngine.Result live = recorder.result(world);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        journal.writeTo(bytes);
+        InputJournal read = InputJournal.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        ReplayEngine engine = new ReplayEngine();
+        assertEquals(live, engine.run(read));
+        assertEquals(2, engine.getWorld().getLineCount());
+        assertEquals(4, engine.getWorld().getGameDuration(), 0);
+    }
+
+    //a journal of a game on a level with a blocker then a three piece target
+    private static byte[] levelJournal() throws IOException {
+        GameWorld world = new GameWorld();
+        world.setSize(720, 1280);
+        world.clearLines();
+        world.addBlocker(400, 100, 400, 500, 0, 300);
+        world.addTarget(650, 200, 650, 1000, 0, 0, 3);
+        world.newGame();
+        InputJournal journal = new InputJournal();
+        journal.begin(world, TICK);
+        journal.record(5, CommandQueue.FIRE, 600, 300);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        journal.writeTo(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            InputJournal.readFrom(new ByteArrayInputStream(bytes));
+            fail("read a corrupt journal");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsCorruptLevelsAndCommands() throws IOException {
+        byte[] good = levelJournal();
+        InputJournal.readFrom(new ByteArrayInputStream(good));
+        int target = 25 + 8 + 2 + 6 * 4; //header, game duration, then the blocker's type, pieces and values
+
+        byte[] bad = good.clone();
+        bad[target] = 7; //no such line type
+        assertRejected(bad);
+        bad = good.clone();
+        bad[target + 1] = 0; //a target with no pieces
+        assertRejected(bad);
+        bad = good.clone();
+        bad[target + 1] = (byte) (Line.MAX_PIECES + 1);
+        assertRejected(bad);
+        bad = good.clone();
+        bad[good.length - 9] = 9; //the command's type
+        assertRejected(bad);
+    }
+
+    @Test
+    public void copyWritesTheSameJournal() throws IOException {
+        InputJournal journal = new InputJournal();
+        playLive(journal);
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        journal.writeTo(original);
+        InputJournal copy = journal.copy();
+        journal.begin(100, 100, TICK, false); //the original moves on to the next game
+        ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        copy.writeTo(copied);
+        assertArrayEquals(original.toByteArray(), copied.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        InputJournal.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+}
@@ -0,0 +1,54 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SoundEventQueueTest {
+
+    @Test
+    public void dropsEventsWhenFull() {
+        SoundEventQueue queue = new SoundEventQueue(4);
+        for (int i = 0; i < 4; ++i)
+            assertTrue(queue.post(i, 1));
+        assertFalse(queue.post(4, 1));
+        assertEquals(1, queue.getDropped());
+
+        assertTrue(queue.poll());
+        assertEquals(0, queue.getSound());
+        assertTrue(queue.post(5, 0.5f));
+    }
+
+    @Test
+    public void takeTimesOutWhenNothingArrives() {
+        SoundEventQueue queue = new SoundEventQueue(4);
+        long start = System.nanoTime();
+        assertFalse(queue.take(20000000L));
+        assertTrue(System.nanoTime() - start >= 20000000L);
+    }
+
+    @Test
+    public void consumerWakesForEveryEvent() throws InterruptedException {
+        final SoundEventQueue queue = new SoundEventQueue(64);
+        final int events = 100000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; ) {
+                    if (queue.post(i % 3, i % 2 == 0 ? 1 : 0.5f))
+                        ++i;
+                    else
+                        Thread.yield();
+                }
+            }
+        };
+        producer.start();
+
+        for (int i = 0; i < events; ++i) {
+            assertTrue(queue.take(5000000000L));
+            assertEquals(i % 3, queue.getSound());
+            assertEquals(i % 2 == 0 ? 1 : 0.5f, queue.getVolume(), 0);
+        }
+        producer.join();
+    }
+}
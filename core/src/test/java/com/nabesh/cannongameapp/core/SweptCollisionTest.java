@@ -0,0 +1,40 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SweptCollisionTest {
+
+    @Test
+    public void fastCircleHitsThinSegmentItWouldJumpOver() {
+        //a ball moving 1000 units in one step towards a vertical segment 500 units away
+        float t = SweptCollision.timeOfImpact(0, 50, 1000, 0, 10, 500, 0, 500, 100, 1);
+        assertEquals(0.49f, t, 1e-5f);
+    }
+
+    @Test
+    public void missesWhenPassingBeyondTheEnds() {
+        float t = SweptCollision.timeOfImpact(0, 150, 1000, 0, 10, 500, 0, 500, 100, 1);
+        assertEquals(SweptCollision.NO_HIT, t, 0);
+    }
+
+    @Test
+    public void clipsTheRoundEnd() {
+        //passing 5 units below the end still touches a circle of radius 10
+        float t = SweptCollision.timeOfImpact(0, 105, 1000, 0, 10, 500, 0, 500, 100, 1);
+        assertTrue(t > 0.49f && t < 0.5f);
+    }
+
+    @Test
+    public void touchingCountsOnlyWhenApproaching() {
+        assertEquals(0, SweptCollision.timeOfImpact(495, 50, 100, 0, 10, 500, 0, 500, 100, 1), 0);
+        assertEquals(SweptCollision.NO_HIT, SweptCollision.timeOfImpact(495, 50, -100, 0, 10, 500, 0, 500, 100, 1), 0);
+    }
+
+    @Test
+    public void reachesTheNearestWall() {
+        float t = SweptCollision.timeOfImpactWithWalls(50, 50, 100, 200, 10, 1000, 100, 1);
+        assertEquals(0.2f, t, 1e-5f);
+    }
+}
@@ -0,0 +1,51 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TripleBufferTest {
+
+    @Test
+    public void readerSeesNewestPublishedBuffer() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[1], new long[1], new long[1]);
+        buffer.getBack()[0] = 1;
+        buffer.publish();
+        buffer.getBack()[0] = 2;
+        buffer.publish();
+
+        assertEquals(2, buffer.acquire()[0]);
+        //nothing new, the reader keeps its buffer
+        assertEquals(2, buffer.acquire()[0]);
+    }
+
+    @Test
+    public void writerNeverWritesTheReadersBuffer() throws InterruptedException {
+        final TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[2], new long[2], new long[2]);
+        final int frames = 200000;
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (long i = 1; i <= frames; ++i) {
+                    long[] back = buffer.getBack();
+                    back[0] = i;
+                    back[1] = i;
+                    buffer.publish();
+                }
+            }
+        };
+        writer.start();
+
+        long last = 0;
+        while (last < frames) {
+            long[] front = buffer.acquire();
+            long first = front[0];
+            Thread.yield();
+            assertEquals(first, front[1]);
+            assertEquals(first, front[0]);
+            assertTrue(first >= last);
+            last = first;
+        }
+        writer.join();
+    }
+}
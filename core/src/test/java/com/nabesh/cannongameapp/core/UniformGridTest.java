@@ -0,0 +1,46 @@
+package com.nabesh.cannongameapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UniformGridTest {
+
+    @Test
+    public void queryFindsOnlyNearbyObstacles() {
+        UniformGrid grid = new UniformGrid(4);
+        grid.resize(100, 100, 10);
+        grid.update(0, 5, 5, 6, 50);
+        grid.update(1, 80, 80, 81, 90);
+
+        int[] out = new int[4];
+        assertEquals(1, grid.query(0, 0, 9, 9, out));
+        assertEquals(0, out[0]);
+        assertEquals(0, grid.query(40, 40, 45, 45, out));
+    }
+
+    @Test
+    public void obstacleInManyCellsIsReportedOnce() {
+        UniformGrid grid = new UniformGrid(2);
+        grid.resize(100, 100, 10);
+        grid.update(0, 0, 0, 99, 99);
+
+        int[] out = new int[2];
+        assertEquals(1, grid.query(0, 0, 99, 99, out));
+    }
+
+    @Test
+    public void updateMovesObstacleBetweenCells() {
+        UniformGrid grid = new UniformGrid(2);
+        grid.resize(100, 100, 10);
+        grid.update(0, 5, 5, 6, 6);
+        grid.update(0, 55, 55, 56, 56);
+
+        int[] out = new int[2];
+        assertEquals(0, grid.query(0, 0, 9, 9, out));
+        assertEquals(1, grid.query(50, 50, 59, 59, out));
+
+        grid.remove(0);
+        assertEquals(0, grid.query(0, 0, 99, 99, out));
+    }
+}